@@ -0,0 +1,38 @@
+package io.kestra.storage.gcs;
+
+import io.kestra.core.models.annotations.PluginProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder
+@Jacksonized
+public class GcsBucket {
+
+    @Schema(
+        title = "The GCS bucket name."
+    )
+    @PluginProperty
+    @NotNull
+    @NotBlank
+    String name;
+
+    @Schema(
+        title = "The GCS service account key of this bucket, as a JSON string.",
+        description = "If not provided, the storage `serviceAccount` will be used."
+    )
+    @PluginProperty(secret = true)
+    String serviceAccount;
+
+    @Schema(
+        title = "The GCP project ID of this bucket.",
+        description = "If not provided, the storage `projectId` will be used."
+    )
+    @PluginProperty
+    String projectId;
+}
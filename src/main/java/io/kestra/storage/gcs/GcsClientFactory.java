@@ -1,7 +1,20 @@
 package io.kestra.storage.gcs;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.cloud.storage.Storage;
@@ -10,12 +23,56 @@ import com.google.cloud.storage.StorageOptions;
 import lombok.SneakyThrows;
 
 public class GcsClientFactory {
-    @SneakyThrows
+    private static final Logger log = LoggerFactory.getLogger(GcsClientFactory.class);
+
+    // Tokens are refreshed this long before they expire, ahead of the client library's own blocking refresh.
+    private static final Duration REFRESH_AHEAD = Duration.ofMinutes(10);
+    private static final Duration REFRESH_CHECK_INTERVAL = Duration.ofSeconds(30);
+
+    // Clients shared by the storages with the same project and service account, guarded by the map itself.
+    private static final Map<ClientKey, SharedClient> SHARED_CLIENTS = new HashMap<>();
+
+    private static ScheduledExecutorService refreshExecutor;
+
+    private record ClientKey(String projectId, String serviceAccount) {
+    }
+
+    /**
+     * A {@link Storage} client shared by all the storages with the same configuration, closed when
+     * the last of them releases it.
+     */
+    static final class SharedClient {
+        private final ClientKey key;
+        private final GoogleCredentials credentials;
+        private final Storage storage;
+        private int references;
+        private ScheduledFuture<?> refresh;
+
+        private SharedClient(ClientKey key, GoogleCredentials credentials, Storage storage) {
+            this.key = key;
+            this.credentials = credentials;
+            this.storage = storage;
+        }
+
+        GoogleCredentials credentials() {
+            return credentials;
+        }
+
+        Storage storage() {
+            return storage;
+        }
+    }
+
     protected static GoogleCredentials credentials(final GcsConfig config) {
+        return credentials(config.getServiceAccount());
+    }
+
+    @SneakyThrows
+    protected static GoogleCredentials credentials(final String serviceAccount) {
         GoogleCredentials credentials;
 
-        if (config.getServiceAccount() != null) {
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(config.getServiceAccount().getBytes());
+        if (serviceAccount != null) {
+            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(serviceAccount.getBytes());
             credentials = ServiceAccountCredentials.fromStream(byteArrayInputStream);
 
         } else {
@@ -25,11 +82,100 @@ public class GcsClientFactory {
     }
 
     public static Storage of(final GcsConfig config) {
+        return of(config, credentials(config));
+    }
+
+    public static Storage of(final GcsConfig config, final GoogleCredentials credentials) {
+        return of(config.getProjectId(), credentials);
+    }
+
+    public static Storage of(final String projectId, final GoogleCredentials credentials) {
         return StorageOptions
             .newBuilder()
-            .setCredentials(credentials(config))
-            .setProjectId(config.getProjectId())
+            .setCredentials(credentials)
+            .setProjectId(projectId)
             .build()
             .getService();
     }
+
+    /**
+     * Gets the client shared by all the storages using this project and service account, creating it
+     * if needed. It must be given back with {@link #release(SharedClient)}.
+     *
+     * @param backgroundRefresh whether the access token must be refreshed in the background ahead of its expiry
+     */
+    static SharedClient acquire(final String projectId, final String serviceAccount, boolean backgroundRefresh) {
+        synchronized (SHARED_CLIENTS) {
+            ClientKey key = new ClientKey(projectId, serviceAccount);
+            SharedClient client = SHARED_CLIENTS.get(key);
+            if (client == null) {
+                GoogleCredentials credentials = credentials(serviceAccount);
+                client = new SharedClient(key, credentials, of(projectId, credentials));
+                SHARED_CLIENTS.put(key, client);
+            }
+
+            if (backgroundRefresh && client.refresh == null) {
+                GoogleCredentials credentials = client.credentials;
+                client.refresh = refreshExecutor().scheduleWithFixedDelay(
+                    () -> refreshIfExpiring(credentials, Instant.now()),
+                    REFRESH_CHECK_INTERVAL.toMillis(),
+                    REFRESH_CHECK_INTERVAL.toMillis(),
+                    TimeUnit.MILLISECONDS
+                );
+            }
+
+            client.references++;
+            return client;
+        }
+    }
+
+    static void release(final SharedClient client) {
+        synchronized (SHARED_CLIENTS) {
+            if (--client.references > 0) {
+                return;
+            }
+
+            SHARED_CLIENTS.remove(client.key);
+            if (client.refresh != null) {
+                client.refresh.cancel(false);
+            }
+        }
+
+        try {
+            client.storage.close();
+        } catch (Exception e) {
+            log.warn("Failed to close GCS client", e);
+        }
+    }
+
+    /**
+     * Refreshes the access token if it expires in less than {@link #REFRESH_AHEAD}. Credentials that
+     * never fetched a token yet are left alone, the first request will fetch it.
+     *
+     * @return whether the token has been refreshed
+     */
+    static boolean refreshIfExpiring(final GoogleCredentials credentials, final Instant now) {
+        AccessToken token = credentials.getAccessToken();
+        if (token == null || token.getExpirationTime() == null) {
+            return false;
+        }
+        if (token.getExpirationTime().toInstant().isAfter(now.plus(REFRESH_AHEAD))) {
+            return false;
+        }
+
+        try {
+            credentials.refresh();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to refresh the GCS access token in the background, retrying in {}s", REFRESH_CHECK_INTERVAL.toSeconds(), e);
+            return false;
+        }
+    }
+
+    private static ScheduledExecutorService refreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(GcsExecutors.daemonThreadFactory("gcs-token-refresh-"));
+        }
+        return refreshExecutor;
+    }
 }
@@ -0,0 +1,209 @@
+package io.kestra.storage.gcs;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.cloud.storage.StorageException;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Adaptive (AIMD) limit of the concurrent requests sent to a bucket: the limit grows by one on
+ * every healthy response while it is being used, and shrinks by {@link #BACKOFF} on 429/503
+ * responses and latency spikes.
+ * <p>
+ * Requests over the limit wait in one queue per tenant, and the queues are served in turn so a
+ * tenant sending a burst of requests doesn't delay the requests of the others.
+ */
+class GcsConcurrencyLimiter {
+    private static final double BACKOFF = 0.9;
+
+    // A latency-sensitive request slower than this many times the average latency is a sign of overload.
+    private static final double LATENCY_SPIKE_RATIO = 4;
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private static final int MIN_LIMIT = 1;
+    private static final int INITIAL_LIMIT = 20;
+
+    @FunctionalInterface
+    interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Deque<Waiter>> queues = new HashMap<>();
+    private final Deque<String> turns = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double averageLatencyNanos;
+    private long lastDecrease = System.nanoTime();
+
+    GcsConcurrencyLimiter(int maxLimit) {
+        if (maxLimit < MIN_LIMIT) {
+            throw new IllegalArgumentException("Max concurrency must be positive, got " + maxLimit);
+        }
+
+        this.maxLimit = maxLimit;
+        this.limit = Math.min(INITIAL_LIMIT, maxLimit);
+    }
+
+    /**
+     * Runs the request once the limit allows it.
+     *
+     * @param tenantId the tenant the request is queued for, if it has to wait
+     * @param latencySensitive whether the request latency is independent of the object size, so a slow response is a sign of overload
+     */
+    <T, E extends Exception> T call(@Nullable String tenantId, boolean latencySensitive, Call<T, E> call) throws E {
+        acquire(tenantId == null ? "" : tenantId);
+
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return call.call();
+        } catch (StorageException e) {
+            overloaded = e.getCode() == 429 || e.getCode() == 503;
+            throw e;
+        } finally {
+            release(start, System.nanoTime(), latencySensitive, overloaded);
+        }
+    }
+
+    private void acquire(String tenantId) {
+        lock.lock();
+        try {
+            if (queued == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                return;
+            }
+
+            Waiter waiter = new Waiter(lock.newCondition());
+            queues.computeIfAbsent(tenantId, key -> {
+                turns.add(key);
+                return new ArrayDeque<>();
+            }).add(waiter);
+            queued++;
+
+            while (!waiter.granted) {
+                try {
+                    waiter.condition.await();
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        inFlight--;
+                        dispatch();
+                    } else {
+                        dequeue(tenantId, waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new StorageException(0, "Interrupted while waiting for the GCS concurrency limit", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long start, long end, boolean latencySensitive, boolean overloaded) {
+        lock.lock();
+        try {
+            inFlight--;
+
+            long latency = end - start;
+            boolean spike = latencySensitive && averageLatencyNanos > 0 && latency > LATENCY_SPIKE_RATIO * averageLatencyNanos;
+            if (latencySensitive) {
+                averageLatencyNanos = averageLatencyNanos == 0 ?
+                    latency :
+                    averageLatencyNanos + LATENCY_SMOOTHING * (latency - averageLatencyNanos);
+            }
+
+            if (overloaded || spike) {
+                // requests sent before the last decrease were sent under the previous limit, don't punish it twice
+                if (start - lastDecrease > 0) {
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+                    lastDecrease = end;
+                }
+            } else if ((inFlight + 1) * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grants the free slots to the waiting requests, taking one request of each tenant in turn.
+     */
+    private void dispatch() {
+        while (inFlight < currentLimit() && !turns.isEmpty()) {
+            String tenantId = turns.poll();
+            Deque<Waiter> queue = queues.get(tenantId);
+            Waiter waiter = queue.poll();
+            if (queue.isEmpty()) {
+                queues.remove(tenantId);
+            } else {
+                turns.add(tenantId);
+            }
+
+            queued--;
+            inFlight++;
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private void dequeue(String tenantId, Waiter waiter) {
+        Deque<Waiter> queue = queues.get(tenantId);
+        queue.remove(waiter);
+        queued--;
+        if (queue.isEmpty()) {
+            queues.remove(tenantId);
+            turns.remove(tenantId);
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    int limit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for the limit
+     */
+    int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package io.kestra.storage.gcs;
 
+import java.time.Duration;
+import java.util.List;
+
 import io.kestra.core.models.annotations.PluginProperty;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -35,4 +38,174 @@ public interface GcsConfig {
     )
     @PluginProperty
     String getProjectId();
+
+    @Schema(
+        title = "Whether to hedge reads.",
+        description = "When enabled, object lookups (`get`, `exists`, `getAttributes`) that have not answered after the hedge delay " +
+            "are sent a second time and the first response wins. The hedge delay adapts to the recently observed latencies."
+    )
+    @PluginProperty
+    Boolean getHedgedReads();
+
+    @Schema(
+        title = "The latency percentile after which a read is hedged.",
+        description = "Computed over the last 1000 observed read latencies."
+    )
+    @PluginProperty
+    Double getHedgePercentile();
+
+    @Schema(
+        title = "The maximum ratio of reads that can be hedged.",
+        description = "Bounds the extra load sent to GCS, e.g. `0.1` hedges at most 10% of the reads."
+    )
+    @PluginProperty
+    Double getHedgeBudget();
+
+    @Schema(
+        title = "The minimum delay before a read is hedged."
+    )
+    @PluginProperty
+    Duration getHedgeMinDelay();
+
+    @Schema(
+        title = "The number of hash shards objects are spread over.",
+        description = "When set, a short hash of its path is added to every object name, right after `path`, so that bursts of writes are spread " +
+            "over the whole bucket key range instead of always hitting the same one. Listings fan out over all the shards in parallel. " +
+            "This must not be changed once data has been written to the bucket."
+    )
+    @PluginProperty
+    Integer getShards();
+
+    @Schema(
+        title = "The initial rate, in writes per second, of the client-side write ramp.",
+        description = "When set, writes are throttled to this rate, which then doubles every `writeRampInterval` as long as writes keep coming, " +
+            "following the GCS request rate guidelines. The ramp starts over after an idle period of one interval."
+    )
+    @PluginProperty
+    Integer getWriteRampInitialRate();
+
+    @Schema(
+        title = "The interval after which the write ramp rate doubles."
+    )
+    @PluginProperty
+    Duration getWriteRampInterval();
+
+    @Schema(
+        title = "Additional GCS buckets tenants are striped over.",
+        description = "Each tenant is deterministically routed, by rendezvous hashing, to either `bucket` or one of these buckets, " +
+            "each one using its own client. This spreads the per-bucket request limits over several buckets, possibly in different projects. " +
+            "Adding a bucket only moves the tenants now routed to it, existing objects are not migrated. " +
+            "Instance resources always stay in `bucket`."
+    )
+    @PluginProperty
+    List<GcsBucket> getBuckets();
+
+    @Schema(
+        title = "The maximum size, in bytes, of the objects whose concurrent downloads are coalesced.",
+        description = "Objects up to this size are downloaded in memory, and concurrent readers of the same object share a single download. " +
+            "Set to `0` to always stream objects from GCS."
+    )
+    @PluginProperty
+    Long getCoalescedReadMaxSize();
+
+    @Schema(
+        title = "A local directory where the state of in-progress uploads is journaled.",
+        description = "When set, uploads larger than one chunk (16 MiB) periodically save their resumable session and offset to this directory. " +
+            "If the worker is killed mid-upload, retrying the same upload resumes it from the last journaled offset instead of starting over. " +
+            "The journal embeds the client credentials, the directory must only be readable by Kestra."
+    )
+    @PluginProperty
+    String getUploadJournalDirectory();
+
+    @Schema(
+        title = "The number of partitions listed concurrently when listing a prefix recursively.",
+        description = "When greater than 1, recursive listings (used by `allByPrefix`, `move`, `deleteByPrefix` and `purgeByLastModified`) " +
+            "that don't fit in a single page discover the sub-prefixes of the listed prefix, then list them concurrently instead of following " +
+            "a single page cursor. The listings fitting in a page take a single request."
+    )
+    @PluginProperty
+    Integer getListingParallelism();
+
+    @Schema(
+        title = "The number of connections opened to each bucket at initialization.",
+        description = "When set, the access token is fetched and this many concurrent requests are sent to each bucket when the storage is initialized, " +
+            "so the first tasks don't pay for the token fetch and connection setups. Connections beyond the JVM keep-alive cache size " +
+            "(the `http.maxConnections` system property, 5 by default) are closed after use."
+    )
+    @PluginProperty
+    Integer getWarmUpConnections();
+
+    @Schema(
+        title = "Whether to refresh the access token in the background before it expires.",
+        description = "Requests otherwise block while the expired token is refreshed."
+    )
+    @PluginProperty
+    Boolean getBackgroundTokenRefresh();
+
+    @Schema(
+        title = "Whether to adapt the number of concurrent requests sent to each bucket to its health.",
+        description = "When enabled, the concurrent requests to each bucket are limited. The limit grows while responses are healthy " +
+            "and shrinks on 429 and 503 errors and latency spikes. Requests over the limit wait, and the waiting requests of the different " +
+            "tenants are served in turn. Uploads are limited separately from the other requests, as they take as long as their data " +
+            "takes to send. Downloads streamed to the caller are not limited."
+    )
+    @PluginProperty
+    Boolean getAdaptiveConcurrency();
+
+    @Schema(
+        title = "The maximum number of concurrent requests sent to each bucket when `adaptiveConcurrency` is enabled.",
+        description = "Uploads have their own limit, with the same maximum."
+    )
+    @PluginProperty
+    Integer getMaxConcurrency();
+
+    @Schema(
+        title = "A local directory where writes are spooled before being uploaded in the background.",
+        description = "When set, `put` returns once the data is synced to this directory, and a pool of uploaders pushes it to GCS, " +
+            "retrying until it succeeds. The objects not uploaded yet are visible to `get`, `exists`, `list` and `getAttributes` of this " +
+            "storage, but not to other nodes. Deletes and moves first wait for the upload of the objects they affect. " +
+            "The spool is uploaded again on restart, so it must be on a persistent volume: objects spooled on a lost disk are lost."
+    )
+    @PluginProperty
+    String getWriteBehindDirectory();
+
+    @Schema(
+        title = "The number of threads uploading the writes spooled to `writeBehindDirectory`."
+    )
+    @PluginProperty
+    Integer getWriteBehindThreads();
+
+    @Schema(
+        title = "Whether to check the CRC32C of the objects on upload and download.",
+        description = "When enabled, uploads compute the CRC32C of the data while it is sent: GCS rejects objects up to 256 KiB whose data " +
+            "doesn't match, and larger objects whose checksum computed by GCS differs are deleted and the upload fails. Downloads fail when " +
+            "the data read doesn't match the checksum stored by GCS, streamed downloads once the end of the object is read."
+    )
+    @PluginProperty
+    Boolean getChecksumValidation();
+
+    @Schema(
+        title = "Whether to keep a running count of the bytes and objects stored by each tenant and namespace.",
+        description = "When enabled, the counts are updated by the writes and deletes of each node, reported by the " +
+            "`kestra.storage.usage.bytes` and `kestra.storage.usage.objects` gauges, and merged by all the nodes in the `.kestra-usage` " +
+            "object of the bucket, under `path`. The moves are counted in the namespace of their target. A reconciliation regularly lists the objects " +
+            "of each tenant stored, including the ones stored before the usage was counted, in parallel when `listingParallelism` is set."
+    )
+    @PluginProperty
+    Boolean getUsageAccounting();
+
+    @Schema(
+        title = "The interval between the checkpoints of the storage usage counted by a node to the `.kestra-usage` object."
+    )
+    @PluginProperty
+    Duration getUsageCheckpointInterval();
+
+    @Schema(
+        title = "The interval between the reconciliations of the storage usage with a listing of each tenant.",
+        description = "The objects listed are attributed to the longest known namespace whose path prefixes them. A single node " +
+            "reconciles at a time, the one holding the lease in the `.kestra-usage-reconciliation` object next to `.kestra-usage`, " +
+            "renewed at each reconciliation for the length of the interval."
+    )
+    @PluginProperty
+    Duration getUsageReconciliationInterval();
 }
@@ -0,0 +1,116 @@
+package io.kestra.storage.gcs;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C checksums in the format of GCS: the base64 encoding of the big-endian checksum.
+ */
+final class GcsCrc32c {
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private GcsCrc32c() {
+    }
+
+    static String encode(Checksum checksum) {
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).array());
+    }
+
+    static String of(byte[] bytes) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes);
+        return encode(checksum);
+    }
+
+    /**
+     * @return a stream checking, once the end of the data is reached, that the data read has the expected checksum
+     */
+    static InputStream verifying(InputStream inputStream, String expected, String name) {
+        return new VerifyingInputStream(inputStream, expected, name);
+    }
+
+    static IOException mismatch(String name, String expected, String actual) {
+        return new IOException("CRC32C mismatch on '" + name + "': expected " + expected + " but got " + actual);
+    }
+
+    private static final class VerifyingInputStream extends FilterInputStream {
+        private final CRC32C checksum = new CRC32C();
+        private final String expected;
+        private final String name;
+        private boolean verified;
+
+        private VerifyingInputStream(InputStream in, String expected, String name) {
+            super(in);
+            this.expected = expected;
+            this.name = name;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read < 0) {
+                verify();
+            } else {
+                checksum.update(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0) {
+                verify();
+            } else {
+                checksum.update(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes must be checksummed too
+            byte[] buffer = new byte[(int) Math.min(SKIP_BUFFER_SIZE, Math.max(n, 0))];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        private void verify() throws IOException {
+            if (verified) {
+                return;
+            }
+            verified = true;
+
+            String actual = encode(checksum);
+            if (!actual.equals(expected)) {
+                throw mismatch(name, expected, actual);
+            }
+        }
+    }
+}
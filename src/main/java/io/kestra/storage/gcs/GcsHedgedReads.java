@@ -0,0 +1,154 @@
+package io.kestra.storage.gcs;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.cloud.storage.StorageException;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+
+/**
+ * Hedging policy for idempotent GCS reads: when a request has not answered after the adaptive delay
+ * (a percentile of the recently observed latencies), a duplicate request is sent and the first
+ * successful response wins.
+ * <p>
+ * Hedges are bounded by a budget: every request earns {@code budget} tokens (capped to
+ * {@link #MAX_TOKENS}) and every hedge spends one, so at most {@code budget} of the requests are
+ * ever duplicated and load cannot double under a slowdown.
+ */
+class GcsHedgedReads implements AutoCloseable {
+    // Number of latency observations the hedge delay is computed from.
+    private static final int WINDOW = 1_000;
+
+    // The hedge delay is recomputed every REFRESH observations, sorting the window on every call is not worth it.
+    private static final int REFRESH = 50;
+
+    private static final long MAX_TOKENS = 10_000;
+    private static final long TOKEN = 1_000;
+
+    private final double percentile;
+    private final long tokensPerRequest;
+    private final long minDelayNanos;
+
+    private final long[] latencies = new long[WINDOW];
+    private final AtomicLong observations = new AtomicLong();
+    private volatile long delayNanos;
+
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+    private final ExecutorService executor;
+
+    GcsHedgedReads(double percentile, double budget, Duration minDelay) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 100 (exclusive), got " + percentile);
+        }
+        if (budget < 0 || budget > 1) {
+            throw new IllegalArgumentException("Hedge budget must be between 0 and 1, got " + budget);
+        }
+
+        this.percentile = percentile;
+        this.tokensPerRequest = Math.round(budget * TOKEN);
+        this.minDelayNanos = minDelay.toNanos();
+        this.delayNanos = this.minDelayNanos;
+        this.executor = Context.taskWrapping(Executors.newCachedThreadPool(GcsExecutors.daemonThreadFactory("gcs-hedged-read-")));
+    }
+
+    /**
+     * Runs the given read, hedging it if it is slower than the current delay.
+     * {@link StorageException} from the read are rethrown as-is.
+     */
+    <T> T call(Supplier<T> read) {
+        tokens.getAndUpdate(current -> Math.min(MAX_TOKENS, current + tokensPerRequest));
+
+        CompletableFuture<T> primary = submit(read);
+        try {
+            return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!acquireHedge()) {
+                return GcsExecutors.join(primary);
+            }
+        } catch (ExecutionException e) {
+            throw GcsExecutors.unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(0, "Interrupted while waiting for a GCS read", e);
+        }
+
+        Span.current().setAttribute(GcsTracer.HEDGED, true);
+        CompletableFuture<T> hedge = submit(read);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    first.complete(result);
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(throwable);
+                }
+            });
+        }
+
+        try {
+            return GcsExecutors.join(first);
+        } finally {
+            primary.cancel(false);
+            hedge.cancel(false);
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> read) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(read, executor);
+        future.whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                observe(System.nanoTime() - start);
+            }
+        });
+        return future;
+    }
+
+    private boolean acquireHedge() {
+        long previous = tokens.getAndUpdate(current -> current >= TOKEN ? current - TOKEN : current);
+        return previous >= TOKEN;
+    }
+
+    /**
+     * @return the delay after which a read is hedged
+     */
+    Duration delay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    void observe(long latencyNanos) {
+        long count = observations.getAndIncrement();
+        synchronized (latencies) {
+            latencies[(int) (count % WINDOW)] = latencyNanos;
+        }
+
+        if ((count + 1) % REFRESH == 0) {
+            long[] window;
+            synchronized (latencies) {
+                window = Arrays.copyOf(latencies, (int) Math.min(count + 1, WINDOW));
+            }
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile / 100 * window.length) - 1;
+            delayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,432 @@
+package io.kestra.storage.gcs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.api.gax.paging.Page;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.Storage;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Lists prefixes by partitioning them on their sub-prefixes and listing the partitions concurrently,
+ * instead of following a single page cursor where each page waits for the previous page token.
+ * <p>
+ * Each prefix is listed plainly first: a prefix whose first page is its whole listing is returned
+ * as-is, only the prefixes having more pages are partitioned, their first page being listed again
+ * by the partitions.
+ * <p>
+ * Partitions are discovered with delimiter listings, descending level by level until there are
+ * enough partitions to keep {@code parallelism} listings busy. Only the sub-prefixes are kept from
+ * discovery: the objects found directly at a discovered level are listed again as a partition of
+ * their own, so every object is returned exactly once and the memory used doesn't grow with the
+ * size of the listing.
+ * <p>
+ * The objects are streamed as the pages of the partitions are fetched, at most one page ahead of
+ * the consumer for each partition listed.
+ */
+class GcsPartitionedLister implements AutoCloseable {
+    // Discovery stops descending after this many levels, even if there are not enough partitions.
+    private static final int MAX_DISCOVERY_DEPTH = 4;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final GcsTracer tracer;
+
+    GcsPartitionedLister(ExecutorService executor, int parallelism, GcsTracer tracer) {
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Lists all the objects under the given prefixes. Only recursive listings, without any
+     * {@code options}, are partitioned further: others list each prefix as-is, concurrently.
+     *
+     * @param order the order of the objects of recursive listings, consistent with the name order
+     *              within each prefix. Without order, the objects come as soon as their page is
+     *              fetched. Listings with {@code options} are sorted once complete.
+     */
+    Stream<Blob> list(
+        Storage client,
+        String bucket,
+        @Nullable GcsConcurrencyLimiter limiter,
+        List<String> prefixes,
+        @Nullable Comparator<Blob> order,
+        Storage.BlobListOption... options
+    ) {
+        if (options.length > 0) {
+            List<Source> sources = prefixes.stream()
+                .map(prefix -> new Source(client, bucket, limiter, prefix, blob -> true, options))
+                .toList();
+            Stream<Blob> blobs = stream(new CompletionOrder(sources));
+            return order == null ? blobs : blobs.sorted(order);
+        }
+
+        List<Partition> roots = prefixes.stream().map(prefix -> new Partition(client, bucket, limiter, prefix)).toList();
+        for (Partition root : roots) {
+            root.firstPage = root.recursive();
+            root.firstPage.start();
+        }
+        discover(client, bucket, limiter, roots.stream().filter(root -> !root.listedAtOnce()).toList());
+        if (order == null) {
+            List<Source> sources = new ArrayList<>();
+            roots.forEach(root -> root.sources(sources));
+            return stream(new CompletionOrder(sources));
+        }
+
+        List<Iterator<Blob>> ordered = roots.stream()
+            .map(root -> root.iterator(order))
+            .toList();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new Merge(ordered, order), Spliterator.ORDERED), false);
+    }
+
+    private static Stream<Blob> stream(Iterator<List<Blob>> pages) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false)
+            .flatMap(List::stream);
+    }
+
+    /**
+     * Discovers the levels of the given prefixes.
+     */
+    private void discover(Storage client, String bucket, @Nullable GcsConcurrencyLimiter limiter, List<Partition> roots) {
+        List<Partition> partitions = roots;
+        for (int depth = 0; depth < MAX_DISCOVERY_DEPTH && !partitions.isEmpty() && partitions.size() < parallelism; depth++) {
+            List<CompletableFuture<List<String>>> listings = partitions.stream()
+                .map(partition -> CompletableFuture.supplyAsync(() -> subPrefixes(client, bucket, limiter, partition.prefix), executor))
+                .toList();
+
+            List<Partition> next = new ArrayList<>();
+            for (int i = 0; i < partitions.size(); i++) {
+                List<Partition> children = GcsExecutors.join(listings.get(i)).stream()
+                    .map(prefix -> new Partition(client, bucket, limiter, prefix))
+                    .toList();
+                partitions.get(i).children = children;
+                next.addAll(children);
+            }
+            partitions = next;
+        }
+    }
+
+    private List<String> subPrefixes(Storage client, String bucket, @Nullable GcsConcurrencyLimiter limiter, String prefix) {
+        return tracer.list(client, bucket, limiter, Storage.BlobListOption.prefix(prefix), Storage.BlobListOption.currentDirectory())
+            .filter(Blob::isDirectory)
+            .map(Blob::getName)
+            .sorted()
+            .toList();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A prefix listed recursively, or a discovered level: the objects directly under it, then its
+     * sub-prefixes as partitions.
+     */
+    private final class Partition {
+        private final Storage client;
+        private final String bucket;
+        @Nullable
+        private final GcsConcurrencyLimiter limiter;
+        private final String prefix;
+        // the sub-prefixes, once the level is discovered
+        @Nullable
+        private List<Partition> children;
+        // the plain listing of a prefix, started before deciding to partition it
+        @Nullable
+        private Source firstPage;
+
+        private Partition(Storage client, String bucket, @Nullable GcsConcurrencyLimiter limiter, String prefix) {
+            this.client = client;
+            this.bucket = bucket;
+            this.limiter = limiter;
+            this.prefix = prefix;
+        }
+
+        private Source direct() {
+            return new Source(client, bucket, limiter, prefix, blob -> !blob.isDirectory(), Storage.BlobListOption.currentDirectory());
+        }
+
+        private Source recursive() {
+            return new Source(client, bucket, limiter, prefix, blob -> true);
+        }
+
+        /**
+         * @return whether the first page of the plain listing is the whole listing, keeping it to list the prefix
+         */
+        private boolean listedAtOnce() {
+            if (GcsExecutors.join(firstPage.next).hasNextPage()) {
+                firstPage = null;
+                return false;
+            }
+            return true;
+        }
+
+        private Source listing() {
+            return firstPage != null ? firstPage : recursive();
+        }
+
+        private void sources(List<Source> sources) {
+            if (children == null) {
+                sources.add(listing());
+                return;
+            }
+            sources.add(direct());
+            children.forEach(child -> child.sources(sources));
+        }
+
+        /**
+         * @return the objects in order, the direct objects of a level merged with its sub-prefixes listed one after the other
+         */
+        private Iterator<Blob> iterator(Comparator<Blob> order) {
+            if (children == null) {
+                return listing().iterator();
+            }
+            return new Merge(List.of(direct().iterator(), new Concat(children, order)), order);
+        }
+    }
+
+    /**
+     * The listing of one prefix, fetching its pages on the listing executor one page ahead of the consumer.
+     */
+    private final class Source {
+        private final Storage client;
+        private final String bucket;
+        @Nullable
+        private final GcsConcurrencyLimiter limiter;
+        private final String prefix;
+        private final Predicate<Blob> filter;
+        private final Storage.BlobListOption[] options;
+        // the next page, null before the listing starts and once the last page was taken
+        @Nullable
+        private CompletableFuture<Page<Blob>> next;
+        private boolean started;
+
+        private Source(
+            Storage client,
+            String bucket,
+            @Nullable GcsConcurrencyLimiter limiter,
+            String prefix,
+            Predicate<Blob> filter,
+            Storage.BlobListOption... options
+        ) {
+            this.client = client;
+            this.bucket = bucket;
+            this.limiter = limiter;
+            this.prefix = prefix;
+            this.filter = filter;
+            this.options = options;
+        }
+
+        /**
+         * Starts fetching the first page, if not started yet.
+         */
+        private void start() {
+            if (!started) {
+                started = true;
+                Storage.BlobListOption[] listOptions = Stream.concat(Stream.of(Storage.BlobListOption.prefix(prefix)), Stream.of(options))
+                    .toArray(Storage.BlobListOption[]::new);
+                next = fetch(() -> client.list(bucket, listOptions));
+            }
+        }
+
+        private boolean exhausted() {
+            return started && next == null;
+        }
+
+        private boolean ready() {
+            return next != null && next.isDone();
+        }
+
+        /**
+         * @return the objects of the next page, starting to fetch the page after it
+         */
+        private List<Blob> take() {
+            start();
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Page<Blob> page = GcsExecutors.join(next);
+            next = page.hasNextPage() ? fetch(page::getNextPage) : null;
+
+            List<Blob> blobs = new ArrayList<>();
+            page.getValues().forEach(blob -> {
+                if (filter.test(blob)) {
+                    blobs.add(blob);
+                }
+            });
+            return blobs;
+        }
+
+        private CompletableFuture<Page<Blob>> fetch(Supplier<Page<Blob>> fetch) {
+            return CompletableFuture.supplyAsync(() -> tracer.listPage(bucket, limiter, fetch), executor);
+        }
+
+        /**
+         * @return the objects of the source, whose listing starts right away
+         */
+        private Iterator<Blob> iterator() {
+            start();
+            return new Iterator<>() {
+                private Iterator<Blob> page = List.<Blob>of().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!page.hasNext() && !exhausted()) {
+                        page = take().iterator();
+                    }
+                    return page.hasNext();
+                }
+
+                @Override
+                public Blob next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return page.next();
+                }
+            };
+        }
+    }
+
+    /**
+     * The pages of the sources in the order they are fetched, with at most {@code parallelism}
+     * sources listed at a time.
+     */
+    private final class CompletionOrder implements Iterator<List<Blob>> {
+        private final Deque<Source> pending;
+        private final List<Source> listed = new ArrayList<>();
+
+        private CompletionOrder(List<Source> sources) {
+            this.pending = new ArrayDeque<>(sources);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (listed.size() < parallelism && !pending.isEmpty()) {
+                Source source = pending.poll();
+                source.start();
+                listed.add(source);
+            }
+            return !listed.isEmpty();
+        }
+
+        @Override
+        public List<Blob> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Source ready = listed.stream().filter(Source::ready).findFirst().orElse(null);
+            if (ready == null) {
+                GcsExecutors.join(CompletableFuture.anyOf(listed.stream().map(source -> source.next).toArray(CompletableFuture[]::new)));
+                ready = listed.stream().filter(Source::ready).findFirst().orElseThrow();
+            }
+
+            List<Blob> blobs = ready.take();
+            if (ready.exhausted()) {
+                listed.remove(ready);
+            }
+            return blobs;
+        }
+    }
+
+    /**
+     * The objects of sibling partitions, one partition after the other, starting the listing of
+     * the next {@code parallelism} partitions ahead.
+     */
+    private final class Concat implements Iterator<Blob> {
+        private final List<Partition> partitions;
+        private final Comparator<Blob> order;
+        private final List<Iterator<Blob>> iterators = new ArrayList<>();
+        private int current;
+
+        private Concat(List<Partition> partitions, Comparator<Blob> order) {
+            this.partitions = partitions;
+            this.order = order;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current < partitions.size()) {
+                // creating the iterators of the partitions starts their listing
+                while (iterators.size() < Math.min(partitions.size(), current + parallelism)) {
+                    iterators.add(partitions.get(iterators.size()).iterator(order));
+                }
+                if (iterators.get(current).hasNext()) {
+                    return true;
+                }
+                iterators.set(current, null);
+                current++;
+            }
+            return false;
+        }
+
+        @Override
+        public Blob next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return iterators.get(current).next();
+        }
+    }
+
+    /**
+     * Merges sorted iterators.
+     */
+    private static final class Merge implements Iterator<Blob> {
+        private record Head(Blob blob, Iterator<Blob> rest) {
+        }
+
+        private final List<Iterator<Blob>> iterators;
+        private final PriorityQueue<Head> heads;
+        private boolean started;
+
+        private Merge(List<Iterator<Blob>> iterators, Comparator<Blob> order) {
+            this.iterators = iterators;
+            this.heads = new PriorityQueue<>(Math.max(1, iterators.size()), Comparator.comparing(Head::blob, order));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!started) {
+                started = true;
+                iterators.forEach(this::advance);
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Blob next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head head = heads.poll();
+            advance(head.rest());
+            return head.blob();
+        }
+
+        private void advance(Iterator<Blob> iterator) {
+            if (iterator.hasNext()) {
+                heads.add(new Head(iterator.next(), iterator));
+            }
+        }
+    }
+}
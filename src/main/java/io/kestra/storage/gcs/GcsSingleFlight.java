@@ -0,0 +1,60 @@
+package io.kestra.storage.gcs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical calls: while a call for a key is in flight, other callers of the
+ * same key wait for it and share its result instead of sending their own request.
+ * <p>
+ * Nothing is cached, a call issued after the in-flight one has completed is sent again. Writes must
+ * {@link #forget(Predicate) forget} the calls in flight for what they changed, so the calls issued
+ * after the write don't share a result read before it.
+ */
+class GcsSingleFlight<K, V> {
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    V call(K key, Supplier<V> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            existing.waiters.incrementAndGet();
+            return GcsExecutors.join(existing.result);
+        }
+
+        try {
+            V result = call.get();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Stops sharing the calls in flight for the matching keys: their current waiters still get their
+     * result, the next calls are sent again.
+     */
+    void forget(Predicate<K> keys) {
+        inFlight.keySet().removeIf(keys);
+    }
+
+    /**
+     * @return the number of callers waiting for the call in flight for the key
+     */
+    int waiters(K key) {
+        Flight<V> flight = inFlight.get(key);
+        return flight == null ? 0 : flight.waiters.get();
+    }
+}
@@ -0,0 +1,32 @@
+package io.kestra.storage.gcs;
+
+import java.util.Map;
+
+import io.kestra.core.storages.FileAttributes;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Attributes of a file, or of a directory, only known from the writes spooled but not uploaded yet.
+ */
+@Value
+@Builder
+class GcsSpooledFileAttributes implements FileAttributes {
+
+    String fileName;
+    long lastModifiedTime;
+    long size;
+    Map<String, String> metadata;
+    boolean isDirectory;
+
+    @Override
+    public long getCreationTime() {
+        return lastModifiedTime;
+    }
+
+    @Override
+    public FileType getType() {
+        return isDirectory ? FileType.Directory : FileType.File;
+    }
+}
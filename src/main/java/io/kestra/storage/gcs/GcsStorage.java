@@ -1,24 +1,48 @@
 package io.kestra.storage.gcs;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.api.gax.paging.Page;
+import com.google.auth.Credentials;
+import com.google.auth.ServiceAccountSigner;
+import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.WriteChannel;
 import com.google.cloud.storage.*;
 
@@ -28,6 +52,10 @@ import io.kestra.core.storages.FileAttributes;
 import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.storages.StorageObject;
 
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+
 import jakarta.annotation.Nullable;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -57,6 +85,33 @@ public class GcsStorage implements StorageInterface, GcsConfig {
     private static final int BATCH_SUBMIT_MAX_ATTEMPTS = 3;
     private static final long BATCH_SUBMIT_RETRY_BACKOFF_MS = 500;
 
+    // V4 signatures cannot be valid for more than 7 days.
+    private static final Duration SIGNED_URL_MAX_EXPIRY = Duration.ofDays(7);
+
+    // Upper bound of the threads listing shards in parallel, unless a higher listing parallelism is configured.
+    private static final int MAX_LISTING_THREADS = 16;
+
+    private static final int UPLOAD_BUFFER_SIZE = 10_240;
+
+    // Journaled uploads save their state every chunk, and check the first bytes of the data before resuming.
+    private static final int UPLOAD_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int UPLOAD_HEAD_SIZE = 1024 * 1024;
+
+    // Objects up to this size are read before being uploaded, so GCS checks them against their CRC32C.
+    private static final int UPLOAD_CHECKSUM_AHEAD_SIZE = 256 * 1024;
+
+    // Deletes and moves wait at most this long for the upload of the spooled writes they affect.
+    private static final Duration SPOOL_FLUSH_TIMEOUT = Duration.ofMinutes(5);
+
+    // Warm-up is best effort, initialization doesn't wait longer for it.
+    private static final Duration WARM_UP_TIMEOUT = Duration.ofSeconds(30);
+
+    // The object of the main bucket, under the path prefix, where the usage of the tenants is checkpointed.
+    private static final String USAGE_CHECKPOINT = ".kestra-usage";
+
+    // The object next to the usage checkpoint holding the lease of the usage reconciliations.
+    private static final String USAGE_RECONCILIATION_LEASE = ".kestra-usage-reconciliation";
+
     private String bucket;
 
     private String path;
@@ -66,19 +121,240 @@ public class GcsStorage implements StorageInterface, GcsConfig {
 
     private String projectId;
 
+    @Builder.Default
+    private Boolean hedgedReads = false;
+
+    @Builder.Default
+    private Double hedgePercentile = 95.0;
+
+    @Builder.Default
+    private Double hedgeBudget = 0.1;
+
+    @Builder.Default
+    private Duration hedgeMinDelay = Duration.ofMillis(20);
+
+    private Integer shards;
+
+    private Integer writeRampInitialRate;
+
+    @Builder.Default
+    private Duration writeRampInterval = Duration.ofMinutes(20);
+
+    private List<GcsBucket> buckets;
+
+    @Builder.Default
+    private Long coalescedReadMaxSize = 256L * 1024;
+
+    private String uploadJournalDirectory;
+
+    @Builder.Default
+    private Integer listingParallelism = 1;
+
+    private Integer warmUpConnections;
+
+    @Builder.Default
+    private Boolean backgroundTokenRefresh = true;
+
+    @Builder.Default
+    private Boolean adaptiveConcurrency = false;
+
+    @Builder.Default
+    private Integer maxConcurrency = 256;
+
+    private String writeBehindDirectory;
+
+    @Builder.Default
+    private Integer writeBehindThreads = 4;
+
+    @Builder.Default
+    private Boolean checksumValidation = true;
+
+    @Builder.Default
+    private Boolean usageAccounting = false;
+
+    @Builder.Default
+    private Duration usageCheckpointInterval = Duration.ofMinutes(5);
+
+    @Builder.Default
+    private Duration usageReconciliationInterval = Duration.ofHours(24);
+
+    @Getter(AccessLevel.PRIVATE)
+    private List<GcsClientFactory.SharedClient> sharedClients;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GoogleCredentials credentials;
+
     @Getter(AccessLevel.PRIVATE)
     private Storage storage;
 
+    // clients and credentials of every bucket, including the main one, by bucket name
+    @Getter(AccessLevel.PRIVATE)
+    private Map<String, Storage> bucketStorages;
+
+    @Getter(AccessLevel.PRIVATE)
+    private Map<String, GoogleCredentials> bucketCredentials;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsHedgedReads hedging;
+
+    // adaptive concurrency limiters, by bucket name
+    @Getter(AccessLevel.PRIVATE)
+    private Map<String, GcsConcurrencyLimiter> limiters;
+
+    // uploads hold their slot until all the data is sent, so they are limited on their own
+    @Getter(AccessLevel.PRIVATE)
+    private Map<String, GcsConcurrencyLimiter> uploadLimiters;
+
+    @Getter(AccessLevel.PRIVATE)
+    @Builder.Default
+    private GcsSingleFlight<BlobId, Blob> metadataLookups = new GcsSingleFlight<>();
+
+    @Getter(AccessLevel.PRIVATE)
+    @Builder.Default
+    private GcsSingleFlight<BlobId, byte[]> contentReads = new GcsSingleFlight<>();
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsWriteRamp writeRamp;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsPartitionedLister lister;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsUploadJournal uploadJournal;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsWriteBehindSpool spool;
+
+    @Getter(AccessLevel.PRIVATE)
+    private GcsUsage usage;
+
+    // the OpenTelemetry instance of Kestra, never the global one: getting it would set a noop global before Kestra sets its own
+    @Getter(AccessLevel.PRIVATE)
+    @Builder.Default
+    private OpenTelemetry openTelemetry = OpenTelemetry.noop();
+
+    @Getter(AccessLevel.PRIVATE)
+    @Builder.Default
+    private GcsTracer tracer = new GcsTracer(OpenTelemetry.noop());
+
     /** {@inheritDoc} **/
     @Override
     public void init() {
-        this.storage = GcsClientFactory.of(this);
+        this.tracer = new GcsTracer(this.openTelemetry);
+        if (this.storage == null) {
+            acquireClients();
+        } else if (this.bucketStorages == null) {
+            // a client given to the builder is used as is, e.g. a fake GCS in tests
+            this.bucketStorages = new HashMap<>(Map.of(this.bucket, this.storage));
+        }
+        if (this.warmUpConnections != null && this.warmUpConnections > 0) {
+            warmUp();
+        }
+        if (Boolean.TRUE.equals(this.adaptiveConcurrency)) {
+            this.limiters = new HashMap<>();
+            this.uploadLimiters = new HashMap<>();
+            this.bucketStorages.keySet().forEach(name -> {
+                this.limiters.put(name, new GcsConcurrencyLimiter(this.maxConcurrency));
+                this.uploadLimiters.put(name, new GcsConcurrencyLimiter(this.maxConcurrency));
+            });
+        }
+        if (Boolean.TRUE.equals(this.hedgedReads)) {
+            this.hedging = new GcsHedgedReads(this.hedgePercentile, this.hedgeBudget, this.hedgeMinDelay);
+        }
+        if (this.writeRampInitialRate != null) {
+            this.writeRamp = new GcsWriteRamp(this.writeRampInitialRate, this.writeRampInterval);
+        }
+        if (this.uploadJournalDirectory != null) {
+            try {
+                this.uploadJournal = new GcsUploadJournal(Path.of(this.uploadJournalDirectory));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to initialize the upload journal in " + this.uploadJournalDirectory, e);
+            }
+        }
+        if (isSharded() || isListingPartitioned()) {
+            int listingThreads = Math.max(isSharded() ? Math.min(this.shards, MAX_LISTING_THREADS) : 1, this.listingParallelism);
+            ExecutorService listingExecutor = Executors.newFixedThreadPool(listingThreads, GcsExecutors.daemonThreadFactory("gcs-listing-"));
+            // propagate the trace context so the listing requests are part of the operation span
+            this.lister = new GcsPartitionedLister(Context.taskWrapping(listingExecutor), listingThreads, this.tracer);
+        }
+        if (this.writeBehindDirectory != null) {
+            try {
+                this.spool = new GcsWriteBehindSpool(Path.of(this.writeBehindDirectory), this.writeBehindThreads, this::uploadSpooled);
+                int replayed = this.spool.replay();
+                if (replayed > 0) {
+                    log.info("Uploading {} writes spooled before the last restart", replayed);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to initialize the write-behind spool in " + this.writeBehindDirectory, e);
+            }
+        }
+        if (Boolean.TRUE.equals(this.usageAccounting)) {
+            this.usage = new GcsUsage(new GcsUsage.Store() {
+                @Override
+                public GcsUsage.Checkpoint load() throws IOException {
+                    return loadUsage();
+                }
+
+                @Override
+                public boolean save(Map<GcsUsage.Key, GcsUsage.Usage> usages, Map<String, Long> reconciled, long generation) {
+                    return saveUsage(usages, reconciled, generation);
+                }
+
+                @Override
+                public boolean lease(String holder, Duration duration) throws IOException {
+                    return leaseUsageReconciliation(holder, duration);
+                }
+            }, this::listTenants, this::scanUsage);
+            try {
+                this.usage.start(this.usageCheckpointInterval, this.usageReconciliationInterval);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to load the storage usage checkpoint", e);
+            }
+            this.usage.register(this.openTelemetry.getMeter("io.kestra.storage.gcs"));
+        }
+    }
+
+    private void acquireClients() {
+        boolean refresh = Boolean.TRUE.equals(this.backgroundTokenRefresh);
+        GcsClientFactory.SharedClient client = GcsClientFactory.acquire(this.projectId, this.serviceAccount, refresh);
+        this.sharedClients = new ArrayList<>(List.of(client));
+        this.credentials = client.credentials();
+        this.storage = client.storage();
+        this.bucketStorages = new HashMap<>(Map.of(this.bucket, this.storage));
+        this.bucketCredentials = new HashMap<>(Map.of(this.bucket, this.credentials));
+        if (this.buckets != null) {
+            for (GcsBucket stripe : this.buckets) {
+                GcsClientFactory.SharedClient stripeClient = GcsClientFactory.acquire(
+                    stripe.getProjectId() != null ? stripe.getProjectId() : this.projectId,
+                    stripe.getServiceAccount() != null ? stripe.getServiceAccount() : this.serviceAccount,
+                    refresh
+                );
+                this.sharedClients.add(stripeClient);
+                this.bucketStorages.put(stripe.getName(), stripeClient.storage());
+                this.bucketCredentials.put(stripe.getName(), stripeClient.credentials());
+            }
+        }
     }
 
     /** {@inheritDoc} **/
     @Override
     public void close() {
-        if (this.storage != null) {
+        if (this.spool != null) {
+            this.spool.close();
+        }
+        if (this.usage != null) {
+            this.usage.close();
+        }
+        if (this.hedging != null) {
+            this.hedging.close();
+        }
+        if (this.lister != null) {
+            this.lister.close();
+        }
+        if (this.sharedClients != null) {
+            this.sharedClients.forEach(GcsClientFactory::release);
+            this.sharedClients = null;
+        } else if (this.storage != null) {
             try {
                 this.storage.close();
             } catch (Exception e) {
@@ -87,6 +363,43 @@ public class GcsStorage implements StorageInterface, GcsConfig {
         }
     }
 
+    /**
+     * Fetches the access tokens, then sends {@link #warmUpConnections} concurrent cheap requests to
+     * every bucket so the connections are opened before the first tasks need them.
+     */
+    private void warmUp() {
+        ExecutorService executor = Executors.newFixedThreadPool(this.warmUpConnections, GcsExecutors.daemonThreadFactory("gcs-warm-up-"));
+        try {
+            List<CompletableFuture<?>> requests = new ArrayList<>();
+            this.bucketStorages.forEach((bucketName, client) -> {
+                GoogleCredentials bucketCredentials = this.bucketCredentials != null ? this.bucketCredentials.get(bucketName) : null;
+                CompletableFuture<Void> token = CompletableFuture.runAsync(() -> {
+                    try {
+                        if (bucketCredentials != null) {
+                            bucketCredentials.refreshIfExpired();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor);
+                for (int i = 0; i < this.warmUpConnections; i++) {
+                    // a missing object is the cheapest request needing no other permission than reading objects
+                    requests.add(token.thenRunAsync(() -> client.get(BlobId.of(bucketName, ".kestra-warm-up")), executor));
+                }
+            });
+
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).get(WARM_UP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            log.warn("GCS warm-up failed, connections will be opened on first use", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("GCS warm-up did not complete within {}s, connections will be opened on first use", WARM_UP_TIMEOUT.toSeconds());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Override
     public String getPath(String tenantId, URI uri) {
         String basePath = StorageInterface.super.getPath(tenantId, uri);
@@ -98,99 +411,390 @@ public class GcsStorage implements StorageInterface, GcsConfig {
 
     private BlobId blob(String tenantId, URI uri) {
         String path = getPath(tenantId, uri);
-        return blob(path);
+        return blob(bucketFor(tenantId), path);
     }
 
     private BlobId blob(URI uri) {
-        return blob(getPath(uri));
+        return blob(bucket, getPath(uri));
+    }
+
+    private BlobId blob(String bucket, String path) {
+        return BlobId.of(bucket, objectName(path));
+    }
+
+    /**
+     * Routes a tenant to {@link #bucket} or one of the {@link #buckets} with rendezvous hashing: the
+     * bucket with the highest score for the tenant wins, so adding a bucket only moves the tenants
+     * that now score highest on it.
+     *
+     * @return the name of the bucket storing the tenant objects
+     */
+    String bucketFor(@Nullable String tenantId) {
+        if (tenantId == null || buckets == null || buckets.isEmpty()) {
+            return bucket;
+        }
+
+        String selected = bucket;
+        long best = routingScore(bucket, tenantId);
+        for (GcsBucket candidate : buckets) {
+            long score = routingScore(candidate.getName(), tenantId);
+            if (score > best) {
+                best = score;
+                selected = candidate.getName();
+            }
+        }
+        return selected;
+    }
+
+    private static long routingScore(String bucket, String tenantId) {
+        return UUID.nameUUIDFromBytes((bucket + "/" + tenantId).getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+    }
+
+    private Storage storage(String bucket) {
+        return this.bucketStorages.get(bucket);
     }
 
-    private BlobId blob(String path) {
-        return BlobId.of(bucket, path);
+    private Storage storage(BlobId blobId) {
+        return storage(blobId.getBucket());
+    }
+
+    /**
+     * @return the credentials of the bucket client, those of the client itself when it was given to the builder
+     */
+    private Credentials credentials(String bucket) {
+        if (this.bucketCredentials != null && this.bucketCredentials.containsKey(bucket)) {
+            return this.bucketCredentials.get(bucket);
+        }
+        return storage(bucket).getOptions().getCredentials();
+    }
+
+    @Nullable
+    private GcsConcurrencyLimiter limiter(String bucket) {
+        return this.limiters == null ? null : this.limiters.get(bucket);
+    }
+
+    /**
+     * Sends a GCS request in its own span, within the concurrency limit of the bucket if enabled.
+     *
+     * @param latencySensitive whether the request latency is independent of the object size
+     */
+    private <T, E extends Exception> T request(String name, String bucket, boolean latencySensitive, GcsTracer.Traced<T, E> call) throws E {
+        return request(name, bucket, limiter(bucket), latencySensitive, call);
+    }
+
+    /**
+     * Sends an upload in its own span, within the upload concurrency limit of the bucket if enabled:
+     * an upload holds its slot for as long as the data takes to send, and must not keep the other
+     * requests waiting.
+     */
+    private <T, E extends Exception> T uploadRequest(String bucket, GcsTracer.Traced<T, E> call) throws E {
+        return request("write", bucket, this.uploadLimiters == null ? null : this.uploadLimiters.get(bucket), false, call);
+    }
+
+    private <T, E extends Exception> T request(
+        String name,
+        String bucket,
+        @Nullable GcsConcurrencyLimiter limiter,
+        boolean latencySensitive,
+        GcsTracer.Traced<T, E> call
+    ) throws E {
+        if (limiter == null) {
+            return this.tracer.request(name, bucket, call);
+        }
+        return this.tracer.request(name, bucket, span -> limiter.call(GcsTracer.currentTenant(), latencySensitive, () -> call.call(span)));
+    }
+
+    private boolean isSharded() {
+        return shards != null && shards > 1;
+    }
+
+    /**
+     * @return the GCS object name of a storage path, with its hash shard right after {@link #path} when
+     * {@link #shards} is set, so the objects stay under {@link #path}
+     */
+    String objectName(String path) {
+        if (!isSharded()) {
+            return path;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(path.getBytes(StandardCharsets.UTF_8));
+        return sharded((int) (crc.getValue() % shards), path);
+    }
+
+    /**
+     * @return the storage path, or path prefix, in the given shard
+     */
+    private String sharded(int shard, String path) {
+        String base = basePath(path);
+        return base + shardPrefix(shard) + path.substring(base.length());
+    }
+
+    /**
+     * @return the storage path of a GCS object name, without its hash shard
+     */
+    String logicalName(String objectName) {
+        if (!isSharded()) {
+            return objectName;
+        }
+        String base = basePath(objectName);
+        String sharded = objectName.substring(base.length());
+        return base + sharded.substring(sharded.indexOf('/') + 1);
+    }
+
+    /**
+     * @return {@link #path} with a trailing slash if the name is under it, the instance resources are not
+     */
+    private String basePath(String name) {
+        if (path == null || path.isEmpty()) {
+            return "";
+        }
+        String base = path.endsWith("/") ? path : path + "/";
+        return name.startsWith(base) ? base : "";
+    }
+
+    private String shardPrefix(int shard) {
+        int width = Integer.toHexString(shards - 1).length();
+        return String.format("%0" + width + "x/", shard);
+    }
+
+    private boolean isListingPartitioned() {
+        return listingParallelism != null && listingParallelism > 1;
+    }
+
+    /**
+     * Lists all the objects under a storage path prefix. With a sharded layout or a listing
+     * parallelism, the shards and partitions are listed concurrently and streamed as they are
+     * fetched.
+     *
+     * @param ordered whether the objects must come in storage path order, like an unpartitioned listing
+     */
+    private Stream<Blob> listPrefix(String bucket, String prefix, boolean ordered, Storage.BlobListOption... options) {
+        Storage client = storage(bucket);
+        if (!isSharded() && (!isListingPartitioned() || options.length > 0)) {
+            return this.tracer.list(client, bucket, limiter(bucket), withPrefix(prefix, options));
+        }
+
+        List<String> prefixes = isSharded() ?
+            IntStream.range(0, shards).mapToObj(shard -> sharded(shard, prefix)).toList() :
+            List.of(prefix);
+
+        Comparator<Blob> order = ordered ? Comparator.comparing(blob -> logicalName(blob.getName())) : null;
+        return this.lister.list(client, bucket, limiter(bucket), prefixes, order, options);
+    }
+
+    private static Storage.BlobListOption[] withPrefix(String prefix, Storage.BlobListOption... options) {
+        return Stream.concat(Stream.of(Storage.BlobListOption.prefix(prefix)), Arrays.stream(options))
+            .toArray(Storage.BlobListOption[]::new);
+    }
+
+    private void throttleWrites(int count) {
+        if (this.writeRamp != null) {
+            this.writeRamp.acquire(count);
+        }
     }
 
     @Override
     public InputStream get(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        return getWithMetadata(tenantId, namespace, uri).inputStream();
+        return this.tracer.operation("get", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span ->
+            getFromBlobId(uri, this.blob(tenantId, URI.create(uri.getPath()))).inputStream()
+        );
     }
 
     @Override
     public InputStream getInstanceResource(@Nullable String namespace, URI uri) throws IOException {
-        return getFromBlobId(uri, blob(uri)).inputStream();
+        return this.tracer.operation("getInstanceResource", GcsTracer.attributes(null, namespace, bucket), span ->
+            getFromBlobId(uri, blob(uri)).inputStream()
+        );
     }
 
     @Override
     public StorageObject getWithMetadata(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        BlobId blobId = this.blob(tenantId, URI.create(uri.getPath()));
-        return getFromBlobId(uri, blobId);
+        return this.tracer.operation("getWithMetadata", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            BlobId blobId = this.blob(tenantId, URI.create(uri.getPath()));
+            return getFromBlobId(uri, blobId);
+        });
     }
 
     private StorageObject getFromBlobId(URI uri, BlobId blobId) throws IOException {
+        Optional<GcsWriteBehindSpool.Entry> spooled = spooled(blobId);
+        if (spooled.isPresent()) {
+            try {
+                return new StorageObject(spooled.get().metadata(), this.spool.open(spooled.get()));
+            } catch (NoSuchFileException e) {
+                // uploaded meanwhile
+            }
+        }
+
         try {
-            Blob blob = this.storage.get(blobId);
+            Blob blob = this.getBlob(blobId);
 
             if (blob == null) {
                 throw new FileNotFoundException(uri + " (File not found)");
             }
 
+            if (blob.getSize() != null) {
+                Span.current().setAttribute(GcsTracer.BYTES, blob.getSize());
+            }
+
+            if (coalescedReadMaxSize != null && blob.getSize() != null && blob.getSize() <= coalescedReadMaxSize) {
+                // the blob id carries the generation, all the readers get the same version of the object
+                byte[] content = this.contentReads.call(
+                    blob.getBlobId(),
+                    () -> request("read", blob.getBucket(), false, span -> {
+                        byte[] bytes = blob.getContent();
+                        span.setAttribute(GcsTracer.BYTES, bytes.length);
+                        return bytes;
+                    })
+                );
+                if (isChecksummed(blob)) {
+                    String checksum = GcsCrc32c.of(content);
+                    if (!checksum.equals(blob.getCrc32c())) {
+                        throw GcsCrc32c.mismatch(blob.getName(), blob.getCrc32c(), checksum);
+                    }
+                }
+                return new StorageObject(blob.getMetadata(), new ByteArrayInputStream(content));
+            }
+
             ReadableByteChannel reader = blob.reader();
-            return new StorageObject(blob.getMetadata(), Channels.newInputStream(reader));
+            InputStream inputStream = Channels.newInputStream(reader);
+            if (isChecksummed(blob)) {
+                // checked when the caller reaches the end of the object
+                inputStream = GcsCrc32c.verifying(inputStream, blob.getCrc32c(), blob.getName());
+            }
+            return new StorageObject(blob.getMetadata(), inputStream);
         } catch (StorageException e) {
             throw new IOException(e);
         }
     }
 
+    /**
+     * @return whether the content read from the blob can be checked against its CRC32C, gzipped
+     * objects are decompressed by the client so their content doesn't match the stored checksum
+     */
+    private boolean isChecksummed(Blob blob) {
+        return Boolean.TRUE.equals(this.checksumValidation) && blob.getCrc32c() != null && !"gzip".equals(blob.getContentEncoding());
+    }
+
+    /**
+     * Generates a V4 signed URL allowing a client to download ({@link HttpMethod#GET}) or upload
+     * ({@link HttpMethod#PUT}) the object at the given tenant URI directly from GCS, without going
+     * through Kestra. Signing happens locally with the configured service account key.
+     * <p>
+     * For {@link HttpMethod#PUT}, the parent directories of the object are created when the URL is
+     * signed, as {@code put} does, since the client upload doesn't create them. A write of the object
+     * still spooled is uploaded first, so the URL gives it and a later upload doesn't replace the client's.
+     *
+     * @param method {@link HttpMethod#GET} or {@link HttpMethod#PUT}
+     * @param expiry how long the URL stays valid, at most 7 days
+     * @return the signed URL
+     */
+    public URL signedUrl(String tenantId, @Nullable String namespace, URI uri, HttpMethod method, Duration expiry) throws IOException {
+        String path = getPath(tenantId, URI.create(uri.getPath()));
+        BlobInfo blobInfo = BlobInfo.newBuilder(this.blob(bucketFor(tenantId), path)).build();
+        return signedUrl(blobInfo, path, method, expiry);
+    }
+
+    /**
+     * Same as {@link #signedUrl(String, String, URI, HttpMethod, Duration)} for instance resources.
+     */
+    public URL signedInstanceResourceUrl(@Nullable String namespace, URI uri, HttpMethod method, Duration expiry) throws IOException {
+        String path = getPath(URI.create(uri.getPath()));
+        BlobInfo blobInfo = BlobInfo.newBuilder(this.blob(bucket, path)).build();
+        return signedUrl(blobInfo, path, method, expiry);
+    }
+
+    private URL signedUrl(BlobInfo blobInfo, String path, HttpMethod method, Duration expiry) throws IOException {
+        if (method != HttpMethod.GET && method != HttpMethod.PUT) {
+            throw new IllegalArgumentException("Signed URLs can only be generated for GET or PUT, got " + method);
+        }
+        if (expiry.isNegative() || expiry.isZero() || expiry.compareTo(SIGNED_URL_MAX_EXPIRY) > 0) {
+            throw new IllegalArgumentException("Signed URL expiry must be between 1 second and " + SIGNED_URL_MAX_EXPIRY + ", got " + expiry);
+        }
+        if (!(credentials(blobInfo.getBucket()) instanceof ServiceAccountSigner signer)) {
+            throw new IllegalStateException("Signed URLs require service account credentials, configure `serviceAccount` to use them");
+        }
+        flushSpooled(blobInfo.getBucket(), path);
+
+        try {
+            if (method == HttpMethod.PUT) {
+                mkdirs(blobInfo.getBucket(), path);
+            }
+            return storage(blobInfo.getBlobId()).signUrl(
+                blobInfo,
+                expiry.toSeconds(),
+                TimeUnit.SECONDS,
+                Storage.SignUrlOption.withV4Signature(),
+                Storage.SignUrlOption.httpMethod(method),
+                Storage.SignUrlOption.signWith(signer)
+            );
+        } catch (StorageException | ServiceAccountSigner.SigningException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public List<URI> allByPrefix(String tenantId, @Nullable String namespace, URI prefix, boolean includeDirectories) {
-        String path = getPath(tenantId, prefix);
-        return blobsForPrefix(path, true, includeDirectories)
-            .map(BlobInfo::getName)
-            .map(blobPath -> URI.create("kestra://" + prefix.getPath() + blobPath.substring(path.length())))
-            .toList();
+        return this.tracer.operation("allByPrefix", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, prefix);
+            String tenantBucket = bucketFor(tenantId);
+            Stream<String> paths = blobsForPrefix(tenantBucket, path, true, includeDirectories)
+                .map(blob -> logicalName(blob.getName()));
+            return Stream.concat(paths, spooledPaths(tenantBucket, path, includeDirectories))
+                .distinct()
+                .map(blobPath -> URI.create("kestra://" + prefix.getPath() + blobPath.substring(path.length())))
+                .toList();
+        });
     }
 
     @Override
     public List<FileAttributes> list(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        String path = getPath(tenantId, uri);
-        String prefix = (path.endsWith("/")) ? path : path + "/";
-
-        List<FileAttributes> list = blobsForPrefix(prefix, false, true)
-            .map(throwFunction(this::getGcsFileAttributes))
-            .toList();
-        if (list.isEmpty()) {
-            // this will throw FileNotFound if there is no directory
-            this.getAttributes(tenantId, namespace, uri);
-        }
-        return list;
+        return this.tracer.operation("list", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, uri);
+            String prefix = (path.endsWith("/")) ? path : path + "/";
+
+            List<FileAttributes> list = withSpooled(
+                blobsForPrefix(bucketFor(tenantId), prefix, false, true).map(throwFunction(this::getGcsFileAttributes)).toList(),
+                bucketFor(tenantId),
+                prefix
+            );
+            if (list.isEmpty()) {
+                // this will throw FileNotFound if there is no directory
+                this.getAttributes(tenantId, namespace, uri);
+            }
+            return list;
+        });
     }
 
     @Override
     public List<FileAttributes> listInstanceResource(@Nullable String namespace, URI uri) throws IOException {
-        String path = getPath(uri);
-        String prefix = (path.endsWith("/")) ? path : path + "/";
-        //in case uri is null, we need to search in the root ("")
-        prefix = prefix.equals("/") ? "" : prefix;
-
-        List<FileAttributes> list = blobsForPrefix(prefix, false, true)
-            .map(throwFunction(this::getGcsFileAttributes))
-            .toList();
-        if (list.isEmpty()) {
-            // this will throw FileNotFound if there is no directory
-            this.getAttributes(uri, path);
-        }
-        return list;
+        return this.tracer.operation("listInstanceResource", GcsTracer.attributes(null, namespace, bucket), span -> {
+            String path = getPath(uri);
+            String prefix = (path.endsWith("/")) ? path : path + "/";
+            //in case uri is null, we need to search in the root ("")
+            prefix = prefix.equals("/") ? "" : prefix;
+
+            List<FileAttributes> list = withSpooled(
+                blobsForPrefix(bucket, prefix, false, true).map(throwFunction(this::getGcsFileAttributes)).toList(),
+                bucket,
+                prefix
+            );
+            if (list.isEmpty()) {
+                // this will throw FileNotFound if there is no directory
+                this.getAttributes(uri, bucket, path);
+            }
+            return list;
+        });
     }
 
-    private Stream<Blob> blobsForPrefix(String prefix, boolean recursive, boolean includeDirectories) {
-        Storage.BlobListOption[] blobListOptions = Stream.concat(
-            Stream.of(Storage.BlobListOption.prefix(prefix)),
-            recursive ? Stream.empty() : Stream.of(Storage.BlobListOption.currentDirectory())
-        ).toArray(Storage.BlobListOption[]::new);
-        Page<Blob> blobs = this.storage.list(bucket, blobListOptions);
-        return blobs.streamAll()
+    private Stream<Blob> blobsForPrefix(String bucket, String prefix, boolean recursive, boolean includeDirectories) {
+        Stream<Blob> blobs = recursive ?
+            listPrefix(bucket, prefix, true) :
+            // with a sharded layout, the same directory can show up in several shards
+            listPrefix(bucket, prefix, true, Storage.BlobListOption.currentDirectory()).filter(distinctByName());
+        return blobs
             .filter(blob ->
             {
-                String key = blob.getName().substring(prefix.length());
+                String key = logicalName(blob.getName()).substring(prefix.length());
                 // Remove recursive result and requested dir
                 return !key.isEmpty()
                     && !Objects.equals(key, prefix)
@@ -200,21 +804,271 @@ public class GcsStorage implements StorageInterface, GcsConfig {
             });
     }
 
+    /**
+     * @return the paths of the spooled writes under the prefix, and of the directories they imply
+     */
+    private Stream<String> spooledPaths(String bucket, String prefix, boolean includeDirectories) {
+        if (this.spool == null) {
+            return Stream.empty();
+        }
+
+        return this.spool.pendingUnder(bucket, prefix).stream()
+            .map(GcsWriteBehindSpool.Entry::path)
+            .flatMap(path -> {
+                if (!includeDirectories) {
+                    return Stream.of(path);
+                }
+                Stream.Builder<String> paths = Stream.builder();
+                for (int slash = path.indexOf('/', prefix.length()); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                    paths.add(path.substring(0, slash + 1));
+                }
+                return paths.add(path).build();
+            })
+            .filter(path -> {
+                // like the listing, without the requested directory
+                String key = path.substring(prefix.length());
+                return !key.isEmpty() && !key.equals("/");
+            });
+    }
+
+    /**
+     * Adds the spooled writes, and the directories they imply, to a listing of the direct children of
+     * the prefix. The spooled version of a file replaces the uploaded one.
+     */
+    private List<FileAttributes> withSpooled(List<FileAttributes> listed, String bucket, String prefix) {
+        if (this.spool == null) {
+            return listed;
+        }
+        List<GcsWriteBehindSpool.Entry> spooled = this.spool.pendingUnder(bucket, prefix);
+        if (spooled.isEmpty()) {
+            return listed;
+        }
+
+        Map<String, FileAttributes> byName = new LinkedHashMap<>();
+        listed.forEach(attributes -> byName.put(attributes.getFileName(), attributes));
+        for (GcsWriteBehindSpool.Entry entry : spooled) {
+            String key = entry.path().substring(prefix.length());
+            int slash = key.indexOf('/');
+            if (slash < 0) {
+                byName.put(key, spooledFileAttributes(key, entry));
+            } else if (slash > 0) {
+                byName.putIfAbsent(key.substring(0, slash), spooledDirectoryAttributes(key.substring(0, slash)));
+            }
+        }
+        return List.copyOf(byName.values());
+    }
+
+    private Optional<GcsWriteBehindSpool.Entry> spooled(BlobId blobId) {
+        if (this.spool == null) {
+            return Optional.empty();
+        }
+        return this.spool.pending(blobId.getBucket(), blobId.getName());
+    }
+
+    private static FileAttributes spooledFileAttributes(String fileName, GcsWriteBehindSpool.Entry entry) {
+        return GcsSpooledFileAttributes.builder()
+            .fileName(fileName)
+            .lastModifiedTime(entry.spooled().toEpochMilli())
+            .size(entry.size())
+            .metadata(entry.metadata())
+            .build();
+    }
+
+    private static FileAttributes spooledDirectoryAttributes(String fileName) {
+        return GcsSpooledFileAttributes.builder()
+            .fileName(fileName)
+            .isDirectory(true)
+            .build();
+    }
+
+    /**
+     * Waits for the upload of the spooled writes under the path, before changing them in GCS.
+     */
+    private void flushSpooled(String bucket, String path) throws IOException {
+        if (this.spool != null) {
+            this.spool.flush(bucket, path, SPOOL_FLUSH_TIMEOUT);
+        }
+    }
+
+    private void account(@Nullable String tenantId, @Nullable String namespace, long bytes, long objects) {
+        if (this.usage != null && tenantId != null) {
+            this.usage.add(tenantId, namespace, bytes, objects);
+        }
+    }
+
+    /**
+     * Counts an object written, replacing an object of the given size if any.
+     */
+    private void account(@Nullable String tenantId, @Nullable String namespace, long bytes, @Nullable Long replaced) {
+        account(tenantId, namespace, replaced == null ? bytes : bytes - replaced, replaced == null ? 1 : 0);
+    }
+
+    /**
+     * Counts an object copied by a move, to the namespace of its target when it moves to the path of another
+     * namespace. The deletion of its source is counted once done.
+     *
+     * @param source the path of the source, relative to the tenant
+     * @param target the path of the target, relative to the tenant
+     */
+    private void accountMoved(String tenantId, @Nullable String namespace, String source, String target, long bytes, @Nullable Long replaced) {
+        if (this.usage == null) {
+            return;
+        }
+        String targetNamespace = this.usage.namespace(tenantId, target);
+        if (Objects.equals(this.usage.namespace(tenantId, source), targetNamespace)) {
+            targetNamespace = namespace;
+        }
+        account(tenantId, targetNamespace, bytes, replaced);
+    }
+
+    /**
+     * @return the size of the object a write replaces, {@code null} if there is none or the usage is not counted
+     */
+    @Nullable
+    private Long replacedSize(@Nullable String tenantId, BlobId blobId) {
+        if (this.usage == null || tenantId == null) {
+            return null;
+        }
+        Optional<GcsWriteBehindSpool.Entry> spooled = spooled(blobId);
+        if (spooled.isPresent()) {
+            return spooled.get().size();
+        }
+        Blob blob = getBlob(blobId);
+        return blob == null ? null : blob.getSize();
+    }
+
+    private BlobId usageCheckpoint() {
+        return usageObject(USAGE_CHECKPOINT);
+    }
+
+    private BlobId usageObject(String name) {
+        return BlobId.of(this.bucket, this.path == null ? name : this.path + (this.path.endsWith("/") ? "" : "/") + name);
+    }
+
+    private GcsUsage.Checkpoint loadUsage() throws IOException {
+        BlobId checkpoint = usageCheckpoint();
+        Blob blob = request("get", checkpoint.getBucket(), true, span -> storage(checkpoint).get(checkpoint));
+        if (blob == null) {
+            return new GcsUsage.Checkpoint(Map.of(), Map.of(), 0);
+        }
+
+        // the blob id carries the generation, the content is the one of the loaded generation
+        byte[] content = request("read", checkpoint.getBucket(), false, span -> storage(checkpoint).readAllBytes(blob.getBlobId()));
+        return GcsUsage.deserialize(content, blob.getGeneration());
+    }
+
+    private boolean saveUsage(Map<GcsUsage.Key, GcsUsage.Usage> usages, Map<String, Long> reconciled, long generation) {
+        return saveUsageObject(usageCheckpoint(), GcsUsage.serialize(usages, reconciled), generation);
+    }
+
+    /**
+     * Acquires the lease of the usage reconciliations if it is free, expired or already held by the
+     * holder, replacing the lease object read with a generation precondition so only one node gets it.
+     */
+    private boolean leaseUsageReconciliation(String holder, Duration duration) throws IOException {
+        BlobId lease = usageObject(USAGE_RECONCILIATION_LEASE);
+        Blob blob = request("get", lease.getBucket(), true, span -> storage(lease).get(lease));
+        long now = System.currentTimeMillis();
+        if (blob != null) {
+            byte[] content = request("read", lease.getBucket(), true, span -> storage(lease).readAllBytes(blob.getBlobId()));
+            String[] fields = new String(content, StandardCharsets.UTF_8).split("\t", -1);
+            // an unreadable lease is taken over
+            boolean held = fields.length == 2 && !fields[0].equals(holder) && fields[1].matches("\\d+") && Long.parseLong(fields[1]) > now;
+            if (held) {
+                return false;
+            }
+        }
+
+        byte[] content = (holder + "\t" + (now + duration.toMillis())).getBytes(StandardCharsets.UTF_8);
+        return saveUsageObject(lease, content, blob == null ? 0 : blob.getGeneration());
+    }
+
+    /**
+     * @return {@code false} if the object is not at the given generation anymore
+     */
+    private boolean saveUsageObject(BlobId blobId, byte[] content, long generation) {
+        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).setContentType("text/tab-separated-values").build();
+        Storage.BlobTargetOption precondition = generation == 0 ?
+            Storage.BlobTargetOption.doesNotExist() :
+            Storage.BlobTargetOption.generationMatch(generation);
+        try {
+            request("create", blobId.getBucket(), true, span -> storage(blobId).create(blobInfo, content, precondition));
+            return true;
+        } catch (StorageException e) {
+            if (e.getCode() == 412) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Lists the tenants stored in each bucket as the directories right under {@link #path}, so the
+     * usage of the tenants stored before it was counted is reconciled too.
+     */
+    private Set<String> listTenants() {
+        String base = this.path == null || this.path.isEmpty() ? "" : this.path + (this.path.endsWith("/") ? "" : "/");
+        Set<String> tenants = new HashSet<>();
+        for (String name : this.bucketStorages.keySet()) {
+            listPrefix(name, base, false, Storage.BlobListOption.currentDirectory())
+                .filter(Blob::isDirectory)
+                .map(blob -> logicalName(blob.getName()))
+                .map(directory -> directory.substring(base.length(), directory.length() - 1))
+                .filter(tenantId -> bucketFor(tenantId).equals(name))
+                .forEach(tenants::add);
+        }
+        return tenants;
+    }
+
+    /**
+     * Lists the objects of a tenant for the reconciliation of its usage, on the parallel listing
+     * path when the listing is partitioned.
+     */
+    private void scanUsage(String tenantId, ObjLongConsumer<String> object) throws IOException {
+        String tenantBucket = bucketFor(tenantId);
+        String prefix = getPath(tenantId, URI.create("/"));
+        // the spooled writes are already counted
+        flushSpooled(tenantBucket, prefix);
+
+        this.tracer.operation("reconcileUsage", GcsTracer.attributes(tenantId, null, tenantBucket), span -> {
+            listPrefix(tenantBucket, prefix, false).forEach(blob -> {
+                String name = logicalName(blob.getName());
+                if (!name.endsWith("/") && blob.getSize() != null) {
+                    object.accept(name.substring(prefix.length()), blob.getSize());
+                }
+            });
+            return null;
+        });
+    }
+
+    private Predicate<Blob> distinctByName() {
+        Set<String> seen = new HashSet<>();
+        return blob -> seen.add(logicalName(blob.getName()));
+    }
+
     @Override
     public boolean exists(String tenantId, @Nullable String namespace, URI uri) {
-        BlobId blobId = this.blob(tenantId, URI.create(uri.getPath()));
-        return exists(blobId);
+        return this.tracer.operation("exists", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            BlobId blobId = this.blob(tenantId, URI.create(uri.getPath()));
+            return exists(blobId);
+        });
     }
 
     @Override
     public boolean existsInstanceResource(@Nullable String namespace, URI uri) {
-        BlobId blobId = this.blob(URI.create(uri.getPath()));
-        return exists(blobId);
+        return this.tracer.operation("existsInstanceResource", GcsTracer.attributes(null, namespace, bucket), span -> {
+            BlobId blobId = this.blob(URI.create(uri.getPath()));
+            return exists(blobId);
+        });
     }
 
     private boolean exists(BlobId blobId) {
+        if (spooled(blobId).isPresent()) {
+            return true;
+        }
+
         try {
-            Blob blob = this.storage.get(blobId);
+            Blob blob = this.getBlob(blobId);
             return blob != null && blob.exists();
         } catch (StorageException e) {
             return false;
@@ -223,30 +1077,69 @@ public class GcsStorage implements StorageInterface, GcsConfig {
 
     @Override
     public FileAttributes getAttributes(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        String path = getPath(tenantId, uri);
-        if (!exists(tenantId, namespace, uri)) {
-            path = path + "/";
-        }
-        return getAttributes(uri, path);
+        return this.tracer.operation("getAttributes", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, uri);
+            if (!exists(tenantId, namespace, uri)) {
+                path = path + "/";
+            }
+            return getAttributes(uri, bucketFor(tenantId), path);
+        });
     }
 
     @Override
     public FileAttributes getInstanceAttributes(@Nullable String namespace, URI uri) throws IOException {
-        String path = getPath(uri);
-        if (!exists(this.blob(uri))) {
-            path = path + "/";
-        }
-        return getAttributes(uri, path);
+        return this.tracer.operation("getInstanceAttributes", GcsTracer.attributes(null, namespace, bucket), span -> {
+            String path = getPath(uri);
+            if (!exists(this.blob(uri))) {
+                path = path + "/";
+            }
+            return getAttributes(uri, bucket, path);
+        });
     }
 
-    private FileAttributes getAttributes(URI uri, String path) throws FileNotFoundException {
-        Blob blob = this.storage.get(this.blob(path));
+    private FileAttributes getAttributes(URI uri, String bucket, String path) throws FileNotFoundException {
+        if (this.spool != null) {
+            Optional<GcsWriteBehindSpool.Entry> spooled = spooled(this.blob(bucket, path));
+            if (spooled.isPresent()) {
+                return spooledFileAttributes(new File(path).getName(), spooled.get());
+            }
+            if (path.endsWith("/") && !this.spool.pendingUnder(bucket, path).isEmpty()) {
+                return spooledDirectoryAttributes(new File(path).getName());
+            }
+        }
+
+        Blob blob = this.getBlob(this.blob(bucket, path));
         if (blob == null) {
             throw new FileNotFoundException("%s not found.".formatted(uri));
         }
         return getGcsFileAttributes(blob);
     }
 
+    /**
+     * Looks up an object, sharing the request with concurrent lookups of the same object and hedging
+     * it when {@link #hedgedReads} is enabled.
+     */
+    private Blob getBlob(BlobId blobId) {
+        Storage client = storage(blobId);
+        return this.metadataLookups.call(blobId, () -> request("get", blobId.getBucket(), true, span -> {
+            span.setAttribute(GcsTracer.OBJECT, blobId.getName());
+            if (this.hedging == null) {
+                return client.get(blobId);
+            }
+            return this.hedging.call(() -> client.get(blobId));
+        }));
+    }
+
+    /**
+     * Stops sharing the lookups and reads in flight for an object once it was written or deleted, so
+     * the calls issued after the write see it.
+     */
+    private void written(BlobId blobId) {
+        Predicate<BlobId> sameObject = id -> id.getBucket().equals(blobId.getBucket()) && id.getName().equals(blobId.getName());
+        this.metadataLookups.forget(sameObject);
+        this.contentReads.forget(sameObject);
+    }
+
     private FileAttributes getGcsFileAttributes(Blob blob) {
         GcsFileAttributes.GcsFileAttributesBuilder builder = GcsFileAttributes.builder()
             .fileName(new File(blob.getName()).getName())
@@ -259,47 +1152,302 @@ public class GcsStorage implements StorageInterface, GcsConfig {
 
     @Override
     public URI put(String tenantId, @Nullable String namespace, URI uri, StorageObject storageObject) throws IOException {
-        String path = getPath(tenantId, uri);
-        BlobInfo blobInfo = BlobInfo
-            .newBuilder(this.blob(tenantId, uri))
-            .setMetadata(storageObject.metadata())
-            .build();
-        return put(uri, storageObject, path, blobInfo);
+        return this.tracer.operation("put", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, uri);
+            BlobInfo blobInfo = BlobInfo
+                .newBuilder(this.blob(tenantId, uri))
+                .setMetadata(storageObject.metadata())
+                .build();
+            return put(tenantId, namespace, uri, storageObject, path, blobInfo);
+        });
     }
 
     @Override
     public URI putInstanceResource(@Nullable String namespace, URI uri, StorageObject storageObject) throws IOException {
-        String path = getPath(uri);
-        BlobInfo blobInfo = BlobInfo
-            .newBuilder(this.blob(uri))
-            .setMetadata(storageObject.metadata())
-            .build();
-        return put(uri, storageObject, path, blobInfo);
+        return this.tracer.operation("putInstanceResource", GcsTracer.attributes(null, namespace, bucket), span -> {
+            String path = getPath(uri);
+            BlobInfo blobInfo = BlobInfo
+                .newBuilder(this.blob(uri))
+                .setMetadata(storageObject.metadata())
+                .build();
+            return put(null, namespace, uri, storageObject, path, blobInfo);
+        });
     }
 
-    private URI put(URI uri, StorageObject storageObject, String path, BlobInfo blobInfo)
+    private URI put(@Nullable String tenantId, @Nullable String namespace, URI uri, StorageObject storageObject, String path, BlobInfo blobInfo)
         throws IOException {
-        try {
-            mkdirs(path);
-            try (
-                WriteChannel writer = this.storage.writer(blobInfo);
-                InputStream data = storageObject.inputStream()
-            ) {
-                byte[] buffer = new byte[10_240];
-
-                int limit;
-                while ((limit = data.read(buffer)) >= 0) {
-                    writer.write(ByteBuffer.wrap(buffer, 0, limit));
-                }
+        Long replaced = replacedSize(tenantId, blobInfo.getBlobId());
+        if (this.spool != null) {
+            try (InputStream data = storageObject.inputStream()) {
+                GcsWriteBehindSpool.Entry entry = this.spool.spool(
+                    blobInfo.getBucket(),
+                    blobInfo.getName(),
+                    path,
+                    GcsTracer.currentTenant(),
+                    storageObject.metadata(),
+                    data
+                );
+                Span.current().setAttribute(GcsTracer.BYTES, entry.size());
+                account(tenantId, namespace, entry.size(), replaced);
             }
+            return URI.create("kestra://" + uri.getPath());
+        }
 
+        try {
+            long written = store(path, blobInfo, storageObject);
+            account(tenantId, namespace, written, replaced);
             return URI.create("kestra://" + uri.getPath());
         } catch (StorageException e) {
             throw new IOException(e);
         }
     }
 
-    private void mkdirs(String path) {
+    /**
+     * @return the number of bytes stored
+     */
+    private long store(String path, BlobInfo blobInfo, StorageObject storageObject) throws IOException {
+        mkdirs(blobInfo.getBucket(), path);
+        throttleWrites(1);
+
+        Span operation = Span.current();
+        long written = uploadRequest(blobInfo.getBucket(), span -> {
+            span.setAttribute(GcsTracer.OBJECT, blobInfo.getName());
+            long bytes = upload(blobInfo, storageObject);
+            span.setAttribute(GcsTracer.BYTES, bytes);
+            span.setAttribute(GcsTracer.CHUNKS, (bytes + UPLOAD_CHUNK_SIZE - 1) / UPLOAD_CHUNK_SIZE);
+            return bytes;
+        });
+        written(blobInfo.getBlobId());
+        operation.setAttribute(GcsTracer.BYTES, written);
+        return written;
+    }
+
+    /**
+     * Uploads a write from the {@link #spool}, in the background.
+     */
+    private void uploadSpooled(GcsWriteBehindSpool.Entry entry, InputStream data) throws IOException {
+        this.tracer.operation("writeBehind", GcsTracer.attributes(entry.tenantId(), null, entry.bucket()), span -> {
+            BlobInfo blobInfo = BlobInfo.newBuilder(entry.bucket(), entry.name())
+                .setMetadata(entry.metadata())
+                .build();
+            store(entry.path(), blobInfo, new StorageObject(entry.metadata(), data));
+            return null;
+        });
+    }
+
+    /**
+     * @return the number of bytes uploaded
+     */
+    private long upload(BlobInfo blobInfo, StorageObject storageObject) throws IOException {
+        if (this.uploadJournal != null) {
+            try (InputStream data = storageObject.inputStream()) {
+                return journaledUpload(blobInfo, data);
+            }
+        }
+
+        if (Boolean.TRUE.equals(this.checksumValidation)) {
+            try (InputStream data = storageObject.inputStream()) {
+                return checksummedUpload(blobInfo, data);
+            }
+        }
+
+        long written = 0;
+        try (
+            WriteChannel writer = storage(blobInfo.getBlobId()).writer(blobInfo);
+            InputStream data = storageObject.inputStream()
+        ) {
+            byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+
+            int limit;
+            while ((limit = data.read(buffer)) >= 0) {
+                writer.write(ByteBuffer.wrap(buffer, 0, limit));
+                written += limit;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Uploads the data while computing its CRC32C. Small objects are read first, so their checksum
+     * is sent with the upload and GCS rejects the upload if the data it received is different.
+     * Larger objects are checked against the checksum GCS computed once the upload is complete,
+     * and deleted if it differs.
+     *
+     * @return the number of bytes of the data
+     */
+    private long checksummedUpload(BlobInfo blobInfo, InputStream data) throws IOException {
+        CRC32C checksum = new CRC32C();
+        byte[] head = data.readNBytes(UPLOAD_CHECKSUM_AHEAD_SIZE + 1);
+        checksum.update(head);
+
+        BlobWriteSession session = head.length <= UPLOAD_CHECKSUM_AHEAD_SIZE ?
+            storage(blobInfo.getBlobId()).blobWriteSession(
+                blobInfo.toBuilder().setCrc32c(GcsCrc32c.encode(checksum)).build(),
+                Storage.BlobWriteOption.crc32cMatch()
+            ) :
+            storage(blobInfo.getBlobId()).blobWriteSession(blobInfo);
+
+        long written = head.length;
+        try (WritableByteChannel writer = session.open()) {
+            writer.write(ByteBuffer.wrap(head));
+
+            byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+            int limit;
+            while ((limit = data.read(buffer)) >= 0) {
+                writer.write(ByteBuffer.wrap(buffer, 0, limit));
+                checksum.update(buffer, 0, limit);
+                written += limit;
+            }
+        }
+
+        verifyUpload(uploaded(session), GcsCrc32c.encode(checksum));
+        return written;
+    }
+
+    private static BlobInfo uploaded(BlobWriteSession session) throws IOException {
+        try {
+            return session.getResult().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageException storageException) {
+                throw storageException;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(0, "Interrupted while waiting for the upload result", e);
+        }
+    }
+
+    /**
+     * Checks the CRC32C computed by GCS on the uploaded object, and deletes the object if it
+     * doesn't match the data.
+     *
+     * @param uploaded the result of the upload, with its generation
+     */
+    private void verifyUpload(@Nullable BlobInfo uploaded, String checksum) throws IOException {
+        if (uploaded == null || uploaded.getCrc32c() == null || uploaded.getCrc32c().equals(checksum)) {
+            return;
+        }
+
+        // the generation of the upload result is set, a later write to the same object is left alone
+        storage(uploaded.getBlobId()).delete(uploaded.getBlobId());
+        throw GcsCrc32c.mismatch(uploaded.getName(), checksum, uploaded.getCrc32c());
+    }
+
+    /**
+     * Uploads the data, saving the upload session and offset to the {@link #uploadJournal} after
+     * every chunk. If a journal entry exists for the object, the upload is resumed from its offset
+     * once the data is checked to be the same as the interrupted upload. The data read for the check
+     * is spilled to the journal directory, and replayed to a new upload if it turns out to differ.
+     * <p>
+     * The writer is only closed, which finalizes the object, when all the data has been written: on
+     * failure the session stays open so the next attempt can resume it.
+     *
+     * @return the number of bytes of the data
+     */
+    private long journaledUpload(BlobInfo blobInfo, InputStream data) throws IOException {
+        Path spilled = null;
+        InputStream replayed = null;
+        try {
+            BlobId blobId = blobInfo.getBlobId();
+            CRC32C head = new CRC32C();
+            CRC32C checksum = new CRC32C();
+            InputStream input = data;
+            WriteChannel writer = null;
+            long offset = 0;
+
+            Optional<GcsUploadJournal.Entry> entry = this.uploadJournal.load(blobId);
+            if (entry.isPresent()) {
+                byte[] headBytes = data.readNBytes((int) Math.min(UPLOAD_HEAD_SIZE, entry.get().offset()));
+                head.update(headBytes);
+                checksum.update(headBytes);
+
+                if (head.getValue() == entry.get().headChecksum()) {
+                    long remaining = entry.get().offset() - headBytes.length;
+                    spilled = this.uploadJournal.tempFile();
+                    try (OutputStream spill = Files.newOutputStream(spilled)) {
+                        spill.write(headBytes);
+                        byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+                        int limit;
+                        while (remaining > 0 && (limit = data.read(buffer, 0, (int) Math.min(buffer.length, remaining))) >= 0) {
+                            checksum.update(buffer, 0, limit);
+                            spill.write(buffer, 0, limit);
+                            remaining -= limit;
+                        }
+                    }
+
+                    if (remaining > 0 || checksum.getValue() != entry.get().checksum()) {
+                        // another upload to the same object, start over with the data already read
+                        log.info("Data differs from the interrupted upload of '{}', starting over", blobId.getName());
+                        this.uploadJournal.delete(blobId);
+                        head.reset();
+                        checksum.reset();
+                        replayed = Files.newInputStream(spilled);
+                        input = new SequenceInputStream(replayed, data);
+                        writer = newUploadWriter(blobInfo);
+                    } else {
+                        log.info("Resuming the upload of '{}' from byte {}", blobId.getName(), entry.get().offset());
+                        writer = entry.get().state().restore();
+                        offset = entry.get().offset();
+                    }
+                } else {
+                    // another upload to the same object, start over with the head already read
+                    this.uploadJournal.delete(blobId);
+                    writer = newUploadWriter(blobInfo);
+                    writer.write(ByteBuffer.wrap(headBytes));
+                    offset = headBytes.length;
+                }
+            }
+
+            if (writer == null) {
+                writer = newUploadWriter(blobInfo);
+            }
+
+            byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+            int limit;
+            // never read past a chunk boundary so the state is captured right after each chunk
+            while ((limit = input.read(buffer, 0, (int) Math.min(buffer.length, UPLOAD_CHUNK_SIZE - offset % UPLOAD_CHUNK_SIZE))) >= 0) {
+                writer.write(ByteBuffer.wrap(buffer, 0, limit));
+                if (offset < UPLOAD_HEAD_SIZE) {
+                    head.update(buffer, 0, (int) Math.min(limit, UPLOAD_HEAD_SIZE - offset));
+                }
+                checksum.update(buffer, 0, limit);
+                offset += limit;
+
+                if (offset % UPLOAD_CHUNK_SIZE == 0) {
+                    this.uploadJournal.save(blobId, new GcsUploadJournal.Entry(writer.capture(), offset, head.getValue(), checksum.getValue()));
+                }
+            }
+
+            writer.close();
+            this.uploadJournal.delete(blobId);
+            if (Boolean.TRUE.equals(this.checksumValidation)) {
+                // a restored writer doesn't give the uploaded object, so its generation is unknown: the
+                // object fetched may be a later write to the same name, and is never deleted
+                String expected = GcsCrc32c.encode(checksum);
+                Blob uploaded = request("get", blobId.getBucket(), true, span -> storage(blobId).get(blobId));
+                if (uploaded != null && uploaded.getCrc32c() != null && !uploaded.getCrc32c().equals(expected)) {
+                    throw GcsCrc32c.mismatch(blobId.getName(), expected, uploaded.getCrc32c());
+                }
+            }
+            return offset;
+        } finally {
+            if (replayed != null) {
+                replayed.close();
+            }
+            if (spilled != null) {
+                Files.deleteIfExists(spilled);
+            }
+        }
+    }
+
+    private WriteChannel newUploadWriter(BlobInfo blobInfo) {
+        WriteChannel writer = storage(blobInfo.getBlobId()).writer(blobInfo);
+        writer.setChunkSize(UPLOAD_CHUNK_SIZE);
+        return writer;
+    }
+
+    private void mkdirs(String bucket, String path) {
         if (path == null || path.isEmpty())
             return;
 
@@ -313,10 +1461,12 @@ public class GcsStorage implements StorageInterface, GcsConfig {
                 currentPath.append(part).append("/");
                 String dir = currentPath.toString();
 
-                if (!exists(blob(dir))) {
+                if (!exists(blob(bucket, dir))) {
                     try {
-                        BlobInfo blobInfo = BlobInfo.newBuilder(blob(dir)).build();
-                        storage.create(blobInfo);
+                        BlobInfo blobInfo = BlobInfo.newBuilder(blob(bucket, dir)).build();
+                        throttleWrites(1);
+                        request("create", bucket, true, span -> storage(bucket).create(blobInfo));
+                        written(blobInfo.getBlobId());
                     } catch (StorageException e) {
                         log.warn("Failed to create directory: {}", dir, e);
                     }
@@ -327,89 +1477,159 @@ public class GcsStorage implements StorageInterface, GcsConfig {
 
     @Override
     public boolean delete(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        FileAttributes fileAttributes;
-        try {
-            fileAttributes = getAttributes(tenantId, namespace, uri);
-        } catch (FileNotFoundException e) {
-            return false;
-        }
+        return this.tracer.operation("delete", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            flushSpooled(bucketFor(tenantId), getPath(tenantId, uri));
 
-        if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
-            return !this.deleteByPrefix(
-                tenantId,
-                namespace,
-                uri.getPath().endsWith("/") ? uri : URI.create(uri.getPath() + "/")
-            ).isEmpty();
-        }
+            FileAttributes fileAttributes;
+            try {
+                fileAttributes = getAttributes(tenantId, namespace, uri);
+            } catch (FileNotFoundException e) {
+                return false;
+            }
+
+            if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
+                return !this.deleteByPrefix(
+                    tenantId,
+                    namespace,
+                    uri.getPath().endsWith("/") ? uri : URI.create(uri.getPath() + "/")
+                ).isEmpty();
+            }
 
-        return this.storage.delete(this.blob(tenantId, uri));
+            BlobId blobId = this.blob(tenantId, uri);
+            throttleWrites(1);
+            boolean deleted = request("delete", blobId.getBucket(), true, deletion -> storage(blobId).delete(blobId));
+            written(blobId);
+            if (deleted) {
+                account(tenantId, namespace, -fileAttributes.getSize(), -1);
+            }
+            return deleted;
+        });
     }
 
     @Override
     public boolean deleteInstanceResource(@Nullable String namespace, URI uri) throws IOException {
-        FileAttributes fileAttributes;
-        try {
-            fileAttributes = getInstanceAttributes(namespace, uri);
-        } catch (FileNotFoundException e) {
-            return false;
-        }
+        return this.tracer.operation("deleteInstanceResource", GcsTracer.attributes(null, namespace, bucket), span -> {
+            flushSpooled(bucket, getPath(uri));
 
-        if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
-            return !this.deleteByPrefix(
-                uri.getPath().endsWith("/") ? uri : URI.create(uri.getPath() + "/")
-            ).isEmpty();
-        }
+            FileAttributes fileAttributes;
+            try {
+                fileAttributes = getInstanceAttributes(namespace, uri);
+            } catch (FileNotFoundException e) {
+                return false;
+            }
 
-        return this.storage.delete(this.blob(uri));
+            if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
+                return !this.deleteByPrefix(
+                    uri.getPath().endsWith("/") ? uri : URI.create(uri.getPath() + "/")
+                ).isEmpty();
+            }
+
+            BlobId blobId = this.blob(uri);
+            throttleWrites(1);
+            boolean deleted = request("delete", blobId.getBucket(), true, deletion -> storage(blobId).delete(blobId));
+            written(blobId);
+            return deleted;
+        });
     }
 
     @Override
     public URI createDirectory(String tenantId, @Nullable String namespace, URI uri) {
-        String path = getPath(tenantId, uri);
-        return createDirectory(uri, path);
+        return this.tracer.operation("createDirectory", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, uri);
+            return createDirectory(uri, bucketFor(tenantId), path);
+        });
     }
 
     @Override
     public URI createInstanceDirectory(String namespace, URI uri) {
-        return createDirectory(uri, getPath(uri));
+        return this.tracer.operation("createInstanceDirectory", GcsTracer.attributes(null, namespace, bucket), span ->
+            createDirectory(uri, bucket, getPath(uri))
+        );
     }
 
-    private URI createDirectory(URI uri, String path) {
+    private URI createDirectory(URI uri, String bucket, String path) {
         if (!path.endsWith("/")) {
             path = path + "/";
         }
-        mkdirs(path);
+        mkdirs(bucket, path);
         return createUri(uri.getPath());
     }
 
     @Override
     public URI move(String tenantId, @Nullable String namespace, URI from, URI to) throws IOException {
-        String path = getPath(tenantId, from);
-        Map<URI, BlobId> toDelete = new LinkedHashMap<>();
-
-        if (getAttributes(tenantId, namespace, from).getType() == FileAttributes.FileType.File) {
-            // move just a file
-            BlobId source = blob(path);
-            BlobId target = blob(tenantId, to);
-            copyForMove(source, target, toDelete);
-        } else {
-            // move directories
-            String prefix = (!path.endsWith("/")) ? path + "/" : path;
-
-            Page<Blob> list = this.storage.list(bucket, Storage.BlobListOption.prefix(prefix));
-            list.streamAll().forEach(blob ->
-            {
-                BlobId target = blob(getPath(tenantId, to) + "/" + blob.getName().substring(prefix.length()));
-                copyForMove(blob.getBlobId(), target, toDelete);
+        return this.tracer.operation("move", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            String path = getPath(tenantId, from);
+            String tenantBucket = bucketFor(tenantId);
+            Map<URI, BlobId> toDelete = new LinkedHashMap<>();
+            Map<URI, Long> sizes = new HashMap<>();
+            // a spooled write to the target would otherwise overwrite the moved objects once uploaded
+            flushSpooled(tenantBucket, path);
+            flushSpooled(tenantBucket, getPath(tenantId, to));
+
+            // the root of the tenant, the usage is counted by path relative to it
+            String root = getPath(tenantId, URI.create("/"));
+            FileAttributes attributes = getAttributes(tenantId, namespace, from);
+            if (attributes.getType() == FileAttributes.FileType.File) {
+                // move just a file
+                BlobId source = blob(tenantBucket, path);
+                String targetPath = getPath(tenantId, to);
+                BlobId target = blob(tenantBucket, targetPath);
+                Long replaced = replacedSize(tenantId, target);
+                sizes.put(copyForMove(source, target, toDelete), attributes.getSize());
+                accountMoved(tenantId, namespace, path.substring(root.length()), targetPath.substring(root.length()), attributes.getSize(), replaced);
+            } else {
+                // move directories
+                String prefix = (!path.endsWith("/")) ? path + "/" : path;
+                String targetPrefix = getPath(tenantId, to) + "/";
+                // the sizes of the objects the move replaces
+                Map<String, Long> replaced = new HashMap<>();
+                if (this.usage != null) {
+                    listPrefix(tenantBucket, targetPrefix, false)
+                        .filter(blob -> !blob.getName().endsWith("/") && blob.getSize() != null)
+                        .forEach(blob -> replaced.put(logicalName(blob.getName()), blob.getSize()));
+                }
+
+                listPrefix(tenantBucket, prefix, false).forEach(blob ->
+                {
+                    String sourcePath = logicalName(blob.getName());
+                    String targetPath = targetPrefix + sourcePath.substring(prefix.length());
+                    URI moved = copyForMove(blob.getBlobId(), blob(tenantBucket, targetPath), toDelete);
+                    if (!blob.getName().endsWith("/") && blob.getSize() != null) {
+                        sizes.put(moved, blob.getSize());
+                        accountMoved(
+                            tenantId,
+                            namespace,
+                            sourcePath.substring(root.length()),
+                            targetPath.substring(root.length()),
+                            blob.getSize(),
+                            replaced.get(targetPath)
+                        );
+                    }
+                });
+            }
+            batchDeleteWithRetry(toDelete).forEach((moved, deleted) -> {
+                // the object was copied, but its source is left when not deleted
+                if (Boolean.TRUE.equals(deleted) && sizes.containsKey(moved)) {
+                    account(tenantId, namespace, -sizes.get(moved), -1);
+                }
             });
-        }
-        batchDeleteWithRetry(toDelete);
-        return createUri(to.getPath());
+            return createUri(to.getPath());
+        });
     }
 
-    private void copyForMove(BlobId source, BlobId target, Map<URI, BlobId> toDelete) {
-        this.storage.copy(Storage.CopyRequest.newBuilder().setSource(source).setTarget(target).build());
-        toDelete.put(URI.create("kestra://" + source.getName()), source);
+    /**
+     * @return the URI of the source, added to the objects to delete
+     */
+    private URI copyForMove(BlobId source, BlobId target, Map<URI, BlobId> toDelete) {
+        throttleWrites(1);
+        request("copy", source.getBucket(), false, span -> {
+            span.setAttribute(GcsTracer.OBJECT, source.getName());
+            return storage(source).copy(Storage.CopyRequest.newBuilder().setSource(source).setTarget(target).build());
+        });
+        written(target);
+        URI uri = URI.create("kestra://" + logicalName(source.getName()));
+        toDelete.put(uri, source);
+        return uri;
     }
 
     @Override
@@ -421,38 +1641,42 @@ public class GcsStorage implements StorageInterface, GcsConfig {
         @Nullable Instant endDate,
         boolean dryRun
     ) throws IOException {
-        try {
-            var path = getPath(tenantId, prefix);
-            Page<Blob> page = storage.list(bucket, Storage.BlobListOption.prefix(path));
-
-            var matched = new ArrayList<URI>();
-            var chunk = new ArrayList<BlobId>(BATCH_DELETE_LIMIT);
-
-            for (var blob : page.iterateAll()) {
-                if (blob.getName().endsWith("/")) {
-                    continue;
-                }
-                var updateTime = blob.getUpdateTimeOffsetDateTime();
-                if (isInWindow(updateTime, startDate, endDate)) {
-                    matched.add(URI.create("kestra://" + prefix.getPath() + blob.getName().substring(path.length())));
-                    if (!dryRun) {
-                        chunk.add(blob.getBlobId());
-                        if (chunk.size() == BATCH_DELETE_LIMIT) {
-                            batchDelete(chunk);
-                            chunk.clear();
+        return this.tracer.operation("purgeByLastModified", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            try {
+                var path = getPath(tenantId, prefix);
+                flushSpooled(bucketFor(tenantId), path);
+                var matched = new ArrayList<URI>();
+                var chunk = new ArrayList<Blob>(BATCH_DELETE_LIMIT);
+                Consumer<Blob> deleted = blob -> account(tenantId, namespace, -blob.getSize(), -1);
+
+                Iterator<Blob> blobs = listPrefix(bucketFor(tenantId), path, false).iterator();
+                while (blobs.hasNext()) {
+                    var blob = blobs.next();
+                    if (blob.getName().endsWith("/")) {
+                        continue;
+                    }
+                    var updateTime = blob.getUpdateTimeOffsetDateTime();
+                    if (isInWindow(updateTime, startDate, endDate)) {
+                        matched.add(URI.create("kestra://" + prefix.getPath() + logicalName(blob.getName()).substring(path.length())));
+                        if (!dryRun) {
+                            chunk.add(blob);
+                            if (chunk.size() == BATCH_DELETE_LIMIT) {
+                                batchDelete(chunk, deleted);
+                                chunk.clear();
+                            }
                         }
                     }
                 }
-            }
 
-            if (!chunk.isEmpty()) {
-                batchDelete(chunk);
-            }
+                if (!chunk.isEmpty()) {
+                    batchDelete(chunk, deleted);
+                }
 
-            return matched;
-        } catch (StorageException e) {
-            throw new IOException(e);
-        }
+                return matched;
+            } catch (StorageException e) {
+                throw new IOException(e);
+            }
+        });
     }
 
     private static boolean isInWindow(OffsetDateTime updateTime, Instant startDate, Instant endDate) {
@@ -469,33 +1693,47 @@ public class GcsStorage implements StorageInterface, GcsConfig {
         return true;
     }
 
-    private void batchDelete(List<BlobId> blobIds) throws IOException {
+    private void batchDelete(List<Blob> blobs, Consumer<Blob> deleted) throws IOException {
         var toDelete = new LinkedHashMap<URI, BlobId>();
-        for (var blobId : blobIds) {
-            toDelete.put(URI.create("kestra://" + blobId.getName()), blobId);
+        var byUri = new HashMap<URI, Blob>();
+        for (var blob : blobs) {
+            URI uri = URI.create("kestra://" + logicalName(blob.getName()));
+            toDelete.put(uri, blob.getBlobId());
+            byUri.put(uri, blob);
         }
-        bulkDelete(toDelete);
+        bulkDelete(toDelete, uri -> deleted.accept(byUri.get(uri)));
     }
 
     @Override
     public List<URI> deleteByPrefix(String tenantId, @Nullable String namespace, URI storagePrefix) throws IOException {
-        try {
-            Map<URI, BlobId> toDelete = new LinkedHashMap<>();
-
-            String prefix = getPath(tenantId, storagePrefix);
-
-            Page<Blob> blobs = this.storage
-                .list(bucket, Storage.BlobListOption.prefix(prefix));
+        return this.tracer.operation("deleteByPrefix", GcsTracer.attributes(tenantId, namespace, bucketFor(tenantId)), span -> {
+            try {
+                Map<URI, BlobId> toDelete = new LinkedHashMap<>();
+                Map<URI, Long> sizes = new HashMap<>();
+
+                String prefix = getPath(tenantId, storagePrefix);
+                // the root of the tenant, under the path prefix
+                String root = getPath(tenantId, URI.create("/"));
+                flushSpooled(bucketFor(tenantId), prefix);
+
+                listPrefix(bucketFor(tenantId), prefix, false).forEach(blob -> {
+                    BlobId blobId = blob.getBlobId();
+                    URI uri = URI.create("kestra:///" + logicalName(blobId.getName()).substring(root.length()).replaceAll("/$", ""));
+                    toDelete.put(uri, blobId);
+                    if (!blobId.getName().endsWith("/") && blob.getSize() != null) {
+                        sizes.put(uri, blob.getSize());
+                    }
+                });
 
-            for (Blob blob : blobs.iterateAll()) {
-                BlobId blobId = blob.getBlobId();
-                toDelete.put(URI.create("kestra://" + blobId.getName().replaceFirst(tenantId, "").replaceAll("/$", "")), blobId);
+                return bulkDelete(toDelete, uri -> {
+                    if (sizes.containsKey(uri)) {
+                        account(tenantId, namespace, -sizes.get(uri), -1);
+                    }
+                });
+            } catch (StorageException e) {
+                throw new IOException(e);
             }
-
-            return bulkDelete(toDelete);
-        } catch (StorageException e) {
-            throw new IOException(e);
-        }
+        });
     }
 
     private List<URI> deleteByPrefix(URI storagePrefix) throws IOException {
@@ -503,13 +1741,12 @@ public class GcsStorage implements StorageInterface, GcsConfig {
             Map<URI, BlobId> toDelete = new LinkedHashMap<>();
 
             String prefix = getPath(storagePrefix);
+            flushSpooled(bucket, prefix);
 
-            Page<Blob> blobs = this.storage.list(bucket, Storage.BlobListOption.prefix(prefix));
-
-            for (Blob blob : blobs.iterateAll()) {
+            listPrefix(bucket, prefix, false).forEach(blob -> {
                 BlobId blobId = blob.getBlobId();
-                toDelete.put(URI.create("kestra://" + blobId.getName().replaceAll("/$", "")), blobId);
-            }
+                toDelete.put(URI.create("kestra://" + logicalName(blobId.getName()).replaceAll("/$", "")), blobId);
+            });
 
             return bulkDelete(toDelete);
         } catch (StorageException e) {
@@ -518,11 +1755,23 @@ public class GcsStorage implements StorageInterface, GcsConfig {
     }
 
     private List<URI> bulkDelete(Map<URI, BlobId> toDelete) throws IOException {
+        return bulkDelete(toDelete, uri -> {});
+    }
+
+    /**
+     * @param deleted called with each deleted object, even when others fail to be deleted
+     */
+    private List<URI> bulkDelete(Map<URI, BlobId> toDelete, Consumer<URI> deleted) throws IOException {
         if (toDelete.isEmpty()) {
             return List.of();
         }
 
         Map<URI, Boolean> results = batchDeleteWithRetry(toDelete);
+        results.forEach((uri, success) -> {
+            if (Boolean.TRUE.equals(success)) {
+                deleted.accept(uri);
+            }
+        });
 
         List<URI> failed = results.entrySet().stream()
             .filter(e -> !Boolean.TRUE.equals(e.getValue()))
@@ -543,19 +1792,33 @@ public class GcsStorage implements StorageInterface, GcsConfig {
     /**
      * Submits the given deletes as a GCS batch, rebuilding and re-submitting a fresh batch on
      * transient {@link StorageException}s. A {@link StorageBatch} is single-use, so the batch is
-     * recreated on every attempt rather than re-submitting the same instance.
+     * recreated on every attempt rather than re-submitting the same instance. All the objects must
+     * belong to the same bucket.
      *
      * @return per-URI deletion outcome ({@code true} when the object was deleted)
      */
     private Map<URI, Boolean> batchDeleteWithRetry(Map<URI, BlobId> toDelete) {
+        if (toDelete.isEmpty()) {
+            return Map.of();
+        }
+
+        BlobId first = toDelete.values().iterator().next();
+        Storage client = storage(first);
         StorageException last = null;
         for (int attempt = 1; attempt <= BATCH_SUBMIT_MAX_ATTEMPTS; attempt++) {
-            StorageBatch batch = this.storage.batch();
+            throttleWrites(toDelete.size());
+            StorageBatch batch = client.batch();
             Map<URI, StorageBatchResult<Boolean>> results = new LinkedHashMap<>();
             toDelete.forEach((uri, blobId) -> results.put(uri, batch.delete(blobId)));
 
+            int currentAttempt = attempt;
             try {
-                batch.submit();
+                request("batch.submit", first.getBucket(), false, span -> {
+                    span.setAttribute(GcsTracer.ATTEMPT, currentAttempt);
+                    span.setAttribute(GcsTracer.OBJECTS, toDelete.size());
+                    batch.submit();
+                    return null;
+                });
             } catch (StorageException e) {
                 last = e;
                 if (attempt < BATCH_SUBMIT_MAX_ATTEMPTS) {
@@ -567,6 +1830,7 @@ public class GcsStorage implements StorageInterface, GcsConfig {
                 throw e;
             }
 
+            toDelete.values().forEach(this::written);
             Map<URI, Boolean> outcome = new LinkedHashMap<>();
             results.forEach((uri, result) -> outcome.put(uri, result != null && Boolean.TRUE.equals(result.get())));
             return outcome;
@@ -0,0 +1,151 @@
+package io.kestra.storage.gcs;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.api.gax.paging.Page;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.Storage;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.Nullable;
+
+/**
+ * Traces the {@link GcsStorage} operations, and the GCS requests they issue as child spans.
+ * <p>
+ * Spans are started from the current context, so they are attached to the trace of the execution
+ * calling the storage when there is one. The number of listed pages is accumulated on the
+ * operation span, even when the listing runs on other threads.
+ */
+class GcsTracer {
+    static final AttributeKey<String> TENANT = AttributeKey.stringKey("kestra.tenant");
+    static final AttributeKey<String> NAMESPACE = AttributeKey.stringKey("kestra.namespace");
+    static final AttributeKey<String> BUCKET = AttributeKey.stringKey("gcs.bucket");
+    static final AttributeKey<String> OBJECT = AttributeKey.stringKey("gcs.object");
+    static final AttributeKey<Long> BYTES = AttributeKey.longKey("gcs.bytes");
+    static final AttributeKey<Long> CHUNKS = AttributeKey.longKey("gcs.chunks");
+    static final AttributeKey<Long> PAGES = AttributeKey.longKey("gcs.pages");
+    static final AttributeKey<Long> OBJECTS = AttributeKey.longKey("gcs.objects");
+    static final AttributeKey<Long> ATTEMPT = AttributeKey.longKey("gcs.attempt");
+    static final AttributeKey<Boolean> HEDGED = AttributeKey.booleanKey("gcs.hedged");
+
+    private static final ContextKey<Operation> OPERATION = ContextKey.named("gcs-storage-operation");
+
+    private record Operation(Span span, @Nullable String tenantId, AtomicLong pages) {
+    }
+
+    @FunctionalInterface
+    interface Traced<T, E extends Exception> {
+        T call(Span span) throws E;
+    }
+
+    private final Tracer tracer;
+
+    GcsTracer(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer("io.kestra.storage.gcs");
+    }
+
+    static Attributes attributes(@Nullable String tenantId, @Nullable String namespace, String bucket) {
+        AttributesBuilder builder = Attributes.builder().put(BUCKET, bucket);
+        if (tenantId != null) {
+            builder.put(TENANT, tenantId);
+        }
+        if (namespace != null) {
+            builder.put(NAMESPACE, namespace);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs a public storage operation in its own span.
+     */
+    <T, E extends Exception> T operation(String name, Attributes attributes, Traced<T, E> call) throws E {
+        Span span = tracer.spanBuilder("GcsStorage." + name).setAllAttributes(attributes).startSpan();
+        Context context = Context.current().with(span).with(OPERATION, new Operation(span, attributes.get(TENANT), new AtomicLong()));
+        try (Scope ignored = context.makeCurrent()) {
+            return call.call(span);
+        } catch (Exception e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * @return the tenant of the current operation, if any
+     */
+    @Nullable
+    static String currentTenant() {
+        Operation operation = Context.current().get(OPERATION);
+        return operation == null ? null : operation.tenantId();
+    }
+
+    /**
+     * Runs a GCS request in a child span of the current operation.
+     */
+    <T, E extends Exception> T request(String name, String bucket, Traced<T, E> call) throws E {
+        Span span = tracer.spanBuilder("gcs." + name).setAttribute(BUCKET, bucket).startSpan();
+        try (Scope ignored = span.makeCurrent()) {
+            return call.call(span);
+        } catch (Exception e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Lists the objects matching the options, lazily fetching each page in its own span.
+     *
+     * @param limiter the concurrency limiter of the bucket, if any
+     */
+    Stream<Blob> list(Storage client, String bucket, @Nullable GcsConcurrencyLimiter limiter, Storage.BlobListOption... options) {
+        Operation operation = Context.current().get(OPERATION);
+        return Stream
+            .iterate(
+                listPage(operation, bucket, limiter, () -> client.list(bucket, options)),
+                Objects::nonNull,
+                page -> page.hasNextPage() ? listPage(operation, bucket, limiter, page::getNextPage) : null
+            )
+            .flatMap(page -> StreamSupport.stream(page.getValues().spliterator(), false));
+    }
+
+    /**
+     * Fetches a page of a listing in its own span, as part of the current operation.
+     */
+    Page<Blob> listPage(String bucket, @Nullable GcsConcurrencyLimiter limiter, Supplier<Page<Blob>> fetch) {
+        return listPage(Context.current().get(OPERATION), bucket, limiter, fetch);
+    }
+
+    private Page<Blob> listPage(
+        @Nullable Operation operation,
+        String bucket,
+        @Nullable GcsConcurrencyLimiter limiter,
+        Supplier<Page<Blob>> fetch
+    ) {
+        Page<Blob> page = request("list", bucket, span -> limiter == null ?
+            fetch.get() :
+            limiter.call(operation == null ? null : operation.tenantId(), true, fetch::get)
+        );
+        if (operation != null) {
+            operation.span().setAttribute(PAGES, operation.pages().incrementAndGet());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,137 @@
+package io.kestra.storage.gcs;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+
+/**
+ * Local journal of the in-progress resumable uploads, so an upload interrupted by a worker restart
+ * can resume from its last journaled offset instead of starting over.
+ * <p>
+ * Each upload has one file holding the captured {@link WriteChannel} state, which embeds the client
+ * options and so the credentials: the journal directory is created readable by its owner only.
+ */
+class GcsUploadJournal {
+    private static final Logger log = LoggerFactory.getLogger(GcsUploadJournal.class);
+
+    private static final String EXTENSION = ".upload";
+
+    // GCS expires resumable upload sessions after a week, older entries can't be resumed anymore.
+    private static final Duration SESSION_EXPIRY = Duration.ofDays(7);
+
+    /**
+     * @param state the captured upload session
+     * @param offset the number of bytes of the data written to the session
+     * @param headChecksum the CRC32C of the first bytes of the data, to detect a different upload early
+     * @param checksum the CRC32C of the first {@code offset} bytes of the data
+     */
+    record Entry(RestorableState<WriteChannel> state, long offset, long headChecksum, long checksum) implements Serializable {
+    }
+
+    private final Path directory;
+
+    GcsUploadJournal(Path directory) throws IOException {
+        this.directory = directory;
+
+        if (!Files.exists(directory)) {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+
+        purgeExpired();
+    }
+
+    Optional<Entry> load(BlobId blobId) {
+        Path file = file(blobId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try (InputStream inputStream = Files.newInputStream(file);
+             ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            return Optional.of((Entry) objectInputStream.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Unable to read the upload journal of {}, the upload will start over", blobId.getName(), e);
+            delete(blobId);
+            return Optional.empty();
+        }
+    }
+
+    void save(BlobId blobId, Entry entry) throws IOException {
+        Path file = file(blobId);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(temp.toFile());
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                objectOutputStream.writeObject(entry);
+                objectOutputStream.flush();
+                outputStream.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return a new temporary file of the journal directory, for the data read while checking that an upload can be resumed
+     */
+    Path tempFile() throws IOException {
+        return Files.createTempFile(directory, "upload", ".tmp");
+    }
+
+    void delete(BlobId blobId) {
+        try {
+            Files.deleteIfExists(file(blobId));
+        } catch (IOException e) {
+            log.warn("Unable to delete the upload journal of {}", blobId.getName(), e);
+        }
+    }
+
+    private void purgeExpired() throws IOException {
+        Instant expiry = Instant.now().minus(SESSION_EXPIRY);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(expiry)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path file(BlobId blobId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest((blobId.getBucket() + "/" + blobId.getName()).getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package io.kestra.storage.gcs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongGauge;
+import jakarta.annotation.Nullable;
+
+/**
+ * Running count of the bytes and objects stored by each tenant and namespace, updated by the
+ * writes and deletes of this node so the usage is known without listing the tenants.
+ * <p>
+ * The counts are shared by all the nodes through a checkpoint object: each node periodically adds
+ * the changes it saw since its last checkpoint, with a generation precondition so concurrent
+ * checkpoints of other nodes are never overwritten.
+ * <p>
+ * A reconciliation periodically replaces the counts of each tenant stored by a listing of its
+ * objects, correcting the drift of concurrent writes. Objects are attributed to the longest known
+ * namespace whose path prefixes them, the tenant itself when none does. Only the node holding the
+ * lease of the reconciliations runs them.
+ * <p>
+ * The changes of the node reconciling until the listing starts are dropped once it is saved. The
+ * changes of the other nodes are pending by slot of {@link #SLOT_MILLIS}, and the checkpoint keeps
+ * the time each tenant was last listed from: the changes of a slot ending before it are part of the
+ * listing, and are dropped instead of being checkpointed. Writes running during a reconciliation, or
+ * within a slot of its start, may be miscounted until the next one.
+ */
+class GcsUsage implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GcsUsage.class);
+
+    private static final int CHECKPOINT_MAX_ATTEMPTS = 5;
+
+    // The pending changes are grouped by slot of this many milliseconds of the wall clock.
+    private static final long SLOT_MILLIS = 10_000;
+
+    record Key(String tenantId, @Nullable String namespace) {
+    }
+
+    record Usage(long bytes, long objects) {
+        Usage plus(Usage other) {
+            return new Usage(bytes + other.bytes, objects + other.objects);
+        }
+    }
+
+    /**
+     * @param usages the usage of each tenant and namespace
+     * @param reconciled the time, in epoch milliseconds, each tenant was last listed from by a reconciliation
+     * @param generation the generation of the checkpoint object, {@code 0} when it doesn't exist
+     */
+    record Checkpoint(Map<Key, Usage> usages, Map<String, Long> reconciled, long generation) {
+    }
+
+    /**
+     * The changes of a tenant and namespace made in the slot starting at the given time.
+     */
+    private record Slot(Key key, long start) {
+        private long end() {
+            return start + SLOT_MILLIS;
+        }
+    }
+
+    interface Store {
+        Checkpoint load() throws IOException;
+
+        /**
+         * @return {@code false} if the checkpoint object is not at the given generation anymore
+         */
+        boolean save(Map<Key, Usage> usages, Map<String, Long> reconciled, long generation) throws IOException;
+
+        /**
+         * Acquires the lease of the reconciliations, or renews it if the holder already has it.
+         *
+         * @return {@code false} if another node holds a lease not expired yet
+         */
+        boolean lease(String holder, Duration duration) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Tenants {
+        /**
+         * @return the tenants having objects stored, including the ones stored before the usage was counted
+         */
+        Set<String> list() throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Scan {
+        /**
+         * Calls the consumer with the path, relative to the tenant, and the size of each object of the tenant.
+         */
+        void scan(String tenantId, ObjLongConsumer<String> object) throws IOException;
+    }
+
+    private static final class Counter {
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong objects = new AtomicLong();
+
+        private Usage get() {
+            return new Usage(bytes.get(), objects.get());
+        }
+    }
+
+    private final Store store;
+    private final Tenants tenants;
+    private final Scan scan;
+    private final LongSupplier clock;
+    // identifies this node as the holder of the lease of the reconciliations
+    private final String holder = UUID.randomUUID().toString();
+
+    // the changes not checkpointed yet
+    private final Map<Slot, Counter> pending = new ConcurrentHashMap<>();
+    private Map<Key, Usage> checkpointed = Map.of();
+    // the changes of this node part of the listing of a running reconciliation, dropped once it is saved
+    private final Map<Slot, Usage> listing = new HashMap<>();
+    // guards the checkpointed usages, the listed changes and their draining from the pending changes, so they are read consistently
+    private final Object view = new Object();
+
+    private final List<ObservableLongGauge> gauges = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    GcsUsage(Store store, Scan scan) {
+        this(store, Set::of, scan, System::currentTimeMillis);
+    }
+
+    GcsUsage(Store store, Tenants tenants, Scan scan) {
+        this(store, tenants, scan, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock the wall clock, in epoch milliseconds
+     */
+    GcsUsage(Store store, Tenants tenants, Scan scan, LongSupplier clock) {
+        this.store = store;
+        this.tenants = tenants;
+        this.scan = scan;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the last checkpoint, then schedules the next checkpoints and reconciliations.
+     *
+     * @param reconciliationInterval the interval between reconciliations, none when {@code null}
+     */
+    void start(Duration checkpointInterval, @Nullable Duration reconciliationInterval) throws IOException {
+        Map<Key, Usage> loaded = store.load().usages();
+        synchronized (view) {
+            this.checkpointed = loaded;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(GcsExecutors.daemonThreadFactory("gcs-usage-"));
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                log.warn("Unable to checkpoint the storage usage, retrying in {}", checkpointInterval, e);
+            }
+        }, checkpointInterval.toMillis(), checkpointInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        if (reconciliationInterval != null) {
+            this.scheduler.scheduleWithFixedDelay(
+                () -> reconcileAll(reconciliationInterval),
+                reconciliationInterval.toMillis(),
+                reconciliationInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * Reconciles the usage of every tenant, if this node gets the lease of the reconciliations.
+     *
+     * @return whether this node got the lease
+     */
+    boolean reconcileAll(Duration lease) {
+        try {
+            if (!store.lease(holder, lease)) {
+                return false;
+            }
+        } catch (Exception e) {
+            log.warn("Unable to acquire the lease of the storage usage reconciliations", e);
+            return false;
+        }
+
+        Set<String> reconciled = tenants();
+        try {
+            reconciled.addAll(tenants.list());
+        } catch (Exception e) {
+            log.warn("Unable to list the tenants stored, only the ones with a counted usage are reconciled", e);
+        }
+        for (String tenantId : reconciled) {
+            try {
+                reconcile(tenantId);
+            } catch (Exception e) {
+                log.warn("Unable to reconcile the storage usage of tenant '{}'", tenantId, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the usage of each tenant and namespace as the {@code kestra.storage.usage.bytes} and
+     * {@code kestra.storage.usage.objects} gauges.
+     */
+    void register(Meter meter) {
+        gauges.add(meter.gaugeBuilder("kestra.storage.usage.bytes")
+            .setDescription("The bytes stored by a tenant and namespace")
+            .setUnit("By")
+            .ofLongs()
+            .buildWithCallback(measurement -> usages().forEach((key, usage) -> measurement.record(usage.bytes(), attributes(key)))));
+        gauges.add(meter.gaugeBuilder("kestra.storage.usage.objects")
+            .setDescription("The objects stored by a tenant and namespace")
+            .setUnit("{object}")
+            .ofLongs()
+            .buildWithCallback(measurement -> usages().forEach((key, usage) -> measurement.record(usage.objects(), attributes(key)))));
+    }
+
+    private static Attributes attributes(Key key) {
+        AttributesBuilder attributes = Attributes.builder().put(GcsTracer.TENANT, key.tenantId());
+        if (key.namespace() != null) {
+            attributes.put(GcsTracer.NAMESPACE, key.namespace());
+        }
+        return attributes.build();
+    }
+
+    /**
+     * Counts objects added, or removed with negative counts.
+     */
+    void add(String tenantId, @Nullable String namespace, long bytes, long objects) {
+        add(new Slot(new Key(tenantId, namespace), clock.getAsLong() / SLOT_MILLIS * SLOT_MILLIS), bytes, objects);
+    }
+
+    private void add(Slot slot, long bytes, long objects) {
+        // atomically with the removal of the drained slots
+        pending.compute(slot, (key, counter) -> {
+            Counter updated = counter == null ? new Counter() : counter;
+            updated.bytes.addAndGet(bytes);
+            updated.objects.addAndGet(objects);
+            return updated;
+        });
+    }
+
+    /**
+     * @return the usage of each tenant and namespace, as of the last checkpoint plus the changes seen since
+     */
+    Map<Key, Usage> usages() {
+        synchronized (view) {
+            Map<Key, Usage> usages = new HashMap<>(checkpointed);
+            listing.forEach((slot, usage) -> usages.merge(slot.key(), usage, Usage::plus));
+            pending.forEach((slot, counter) -> usages.merge(slot.key(), counter.get(), Usage::plus));
+            return usages;
+        }
+    }
+
+    /**
+     * Adds the changes seen since the last checkpoint to the checkpoint object, except the ones
+     * already part of the listing of a reconciliation.
+     */
+    synchronized void checkpoint() throws IOException {
+        Map<Slot, Usage> changes = pendingChanges();
+        Checkpoint saved = update(checkpoint -> {
+            Map<Key, Usage> usages = new HashMap<>(checkpoint.usages());
+            changes.forEach((slot, usage) -> {
+                if (!listed(slot, checkpoint.reconciled())) {
+                    usages.merge(slot.key(), usage, Usage::plus);
+                }
+            });
+            return new Checkpoint(usages, checkpoint.reconciled(), checkpoint.generation());
+        });
+        saved(saved, changes);
+    }
+
+    private static boolean listed(Slot slot, Map<String, Long> reconciled) {
+        Long listed = reconciled.get(slot.key().tenantId());
+        return listed != null && slot.end() <= listed;
+    }
+
+    /**
+     * Replaces the usage of a tenant by the count of its objects. The objects are listed without
+     * holding the monitor, so checkpoints go on meanwhile.
+     */
+    void reconcile(String tenantId) throws IOException {
+        // the changes of this node until now, and of the slots ended by now, are part of the listing
+        long listed = clock.getAsLong();
+        Map<Slot, Usage> changes;
+        synchronized (this) {
+            changes = pendingChanges();
+            changes.keySet().removeIf(slot -> !slot.key().tenantId().equals(tenantId));
+            synchronized (view) {
+                drain(changes);
+                changes.forEach((slot, usage) -> listing.merge(slot, usage, Usage::plus));
+            }
+        }
+
+        boolean saved = false;
+        try {
+            replace(tenantId, listed, changes);
+            saved = true;
+        } finally {
+            if (!saved) {
+                // left to the next checkpoint
+                synchronized (view) {
+                    unlist(changes);
+                    changes.forEach((slot, usage) -> add(slot, usage.bytes(), usage.objects()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the usage of a tenant by the count of its objects, dropping the changes of this node listed.
+     */
+    private void replace(String tenantId, long listed, Map<Slot, Usage> changes) throws IOException {
+        List<String> byLongestPath = namespacesByLongestPath(tenantId);
+        Map<Key, Usage> counted = new HashMap<>();
+        scan.scan(tenantId, (path, size) ->
+            counted.merge(new Key(tenantId, namespace(byLongestPath, path)), new Usage(size, 1), Usage::plus)
+        );
+
+        synchronized (this) {
+            Checkpoint saved = update(checkpoint -> {
+                Map<Key, Usage> usages = new HashMap<>(checkpoint.usages());
+                usages.keySet().removeIf(key -> key.tenantId().equals(tenantId));
+                usages.putAll(counted);
+                Map<String, Long> reconciled = new HashMap<>(checkpoint.reconciled());
+                reconciled.merge(tenantId, listed, Math::max);
+                return new Checkpoint(usages, reconciled, checkpoint.generation());
+            });
+            synchronized (view) {
+                saved(saved, Map.of());
+                unlist(changes);
+            }
+        }
+    }
+
+    /**
+     * @param path a path relative to the tenant
+     * @return the longest namespace of the tenant with a counted usage whose path prefixes the path, if any
+     */
+    @Nullable
+    String namespace(String tenantId, String path) {
+        return namespace(namespacesByLongestPath(tenantId), path);
+    }
+
+    @Nullable
+    private static String namespace(List<String> byLongestPath, String path) {
+        return byLongestPath.stream()
+            .filter(candidate -> path.startsWith(candidate.replace('.', '/') + "/"))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private List<String> namespacesByLongestPath(String tenantId) {
+        Set<String> namespaces = new HashSet<>();
+        usages().keySet().stream()
+            .filter(key -> key.tenantId().equals(tenantId) && key.namespace() != null)
+            .forEach(key -> namespaces.add(key.namespace()));
+        return namespaces.stream()
+            .sorted(Comparator.comparingInt(String::length).reversed())
+            .toList();
+    }
+
+    private Set<String> tenants() {
+        Set<String> tenants = new HashSet<>();
+        usages().keySet().forEach(key -> tenants.add(key.tenantId()));
+        return tenants;
+    }
+
+    private Map<Slot, Usage> pendingChanges() {
+        Map<Slot, Usage> changes = new HashMap<>();
+        pending.forEach((slot, counter) -> changes.put(slot, counter.get()));
+        return changes;
+    }
+
+    /**
+     * Replaces the checkpointed usages, and removes the changes saved or dropped from the pending
+     * ones. The changes seen meanwhile stay pending.
+     */
+    private void saved(Checkpoint saved, Map<Slot, Usage> changes) {
+        synchronized (view) {
+            this.checkpointed = saved.usages();
+            drain(changes);
+        }
+    }
+
+    private void drain(Map<Slot, Usage> changes) {
+        changes.forEach((slot, usage) -> pending.computeIfPresent(slot, (key, counter) -> {
+            long bytes = counter.bytes.addAndGet(-usage.bytes());
+            long objects = counter.objects.addAndGet(-usage.objects());
+            return bytes == 0 && objects == 0 ? null : counter;
+        }));
+    }
+
+    private void unlist(Map<Slot, Usage> changes) {
+        changes.forEach((slot, usage) -> listing.computeIfPresent(slot, (key, listed) -> {
+            Usage left = listed.plus(new Usage(-usage.bytes(), -usage.objects()));
+            return left.bytes() == 0 && left.objects() == 0 ? null : left;
+        }));
+    }
+
+    /**
+     * Saves the checkpoint changed from the current one, starting over from the new checkpoint
+     * when another node saved one meanwhile.
+     *
+     * @return the saved checkpoint
+     */
+    private Checkpoint update(UnaryOperator<Checkpoint> change) throws IOException {
+        for (int attempt = 1; attempt <= CHECKPOINT_MAX_ATTEMPTS; attempt++) {
+            Checkpoint checkpoint = store.load();
+            Checkpoint changed = change.apply(checkpoint);
+            if (store.save(changed.usages(), changed.reconciled(), checkpoint.generation())) {
+                return changed;
+            }
+        }
+        throw new IOException("The storage usage checkpoint was concurrently updated " + CHECKPOINT_MAX_ATTEMPTS + " times in a row");
+    }
+
+    @Override
+    public void close() {
+        gauges.forEach(ObservableLongGauge::close);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                log.warn("Unable to checkpoint the storage usage on shutdown, the changes of this node since the last checkpoint are lost", e);
+            }
+        }
+    }
+
+    /**
+     * @return a line per tenant and namespace with its usage, and a line per tenant with the time it was last listed from
+     */
+    static byte[] serialize(Map<Key, Usage> usages, Map<String, Long> reconciled) {
+        StringBuilder content = new StringBuilder();
+        usages.forEach((key, usage) -> content
+            .append(key.tenantId()).append('\t')
+            .append(key.namespace() == null ? "" : key.namespace()).append('\t')
+            .append(usage.bytes()).append('\t')
+            .append(usage.objects()).append('\n')
+        );
+        reconciled.forEach((tenantId, listed) -> content
+            .append(tenantId).append('\t')
+            .append(listed).append('\n')
+        );
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Checkpoint deserialize(byte[] content, long generation) throws IOException {
+        Map<Key, Usage> usages = new HashMap<>();
+        Map<String, Long> reconciled = new HashMap<>();
+        for (String line : new String(content, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 4 && fields.length != 2) {
+                throw new IOException("Invalid storage usage checkpoint line '" + line + "'");
+            }
+            try {
+                if (fields.length == 2) {
+                    reconciled.put(fields[0], Long.parseLong(fields[1]));
+                } else {
+                    usages.put(
+                        new Key(fields[0], fields[1].isEmpty() ? null : fields[1]),
+                        new Usage(Long.parseLong(fields[2]), Long.parseLong(fields[3]))
+                    );
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid storage usage checkpoint line '" + line + "'", e);
+            }
+        }
+        return new Checkpoint(usages, reconciled, generation);
+    }
+}
@@ -0,0 +1,363 @@
+package io.kestra.storage.gcs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Local spool of the objects written but not uploaded yet: a write is durable once its data and
+ * entry files are synced to the spool directory, and a pool of uploaders then pushes them to GCS,
+ * retrying with a backoff until they succeed.
+ * <p>
+ * Only the latest write of an object is uploaded, a write replacing a pending one cancels it. The
+ * entries left by a previous process are uploaded again by {@link #replay()}.
+ */
+class GcsWriteBehindSpool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GcsWriteBehindSpool.class);
+
+    private static final String DATA_EXTENSION = ".data";
+    private static final String ENTRY_EXTENSION = ".entry";
+
+    private static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    // On close, the pending writes are given this long to be uploaded, the others are uploaded on the next start.
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * @param id the name of the spool files of this write
+     * @param name the GCS object name
+     * @param path the storage path of the object, without its hash shard
+     * @param tenantId the tenant that wrote the object, if any
+     */
+    record Entry(
+        String id,
+        String bucket,
+        String name,
+        String path,
+        @Nullable String tenantId,
+        @Nullable HashMap<String, String> metadata,
+        long size,
+        Instant spooled
+    ) implements Serializable {
+    }
+
+    @FunctionalInterface
+    interface Uploader {
+        void upload(Entry entry, InputStream data) throws IOException;
+    }
+
+    private record Key(String bucket, String name) {
+    }
+
+    private record Pending(Entry entry, CompletableFuture<Void> done) {
+    }
+
+    private final Path directory;
+    private final Uploader uploader;
+    private final ScheduledThreadPoolExecutor executor;
+
+    // the latest write of each object not uploaded yet
+    private final Map<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    // the objects with an upload queued or running, an object is never uploaded twice concurrently
+    private final Set<Key> scheduled = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    GcsWriteBehindSpool(Path directory, int threads, Uploader uploader) throws IOException {
+        this.directory = directory;
+        this.uploader = uploader;
+        Files.createDirectories(directory);
+
+        this.executor = new ScheduledThreadPoolExecutor(threads, GcsExecutors.daemonThreadFactory("gcs-write-behind-"));
+    }
+
+    /**
+     * Schedules the upload of the entries spooled by a previous process, and deletes the files of the
+     * writes that never completed.
+     *
+     * @return the number of entries to upload
+     */
+    int replay() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().endsWith(ENTRY_EXTENSION)) {
+                    readEntry(file).ifPresent(entries::add);
+                }
+            }
+        }
+
+        // when a process died while replacing a write, only upload the latest one
+        entries.sort(Comparator.comparing(Entry::spooled));
+        for (Entry entry : entries) {
+            Pending previous = pending.put(new Key(entry.bucket(), entry.name()), new Pending(entry, new CompletableFuture<>()));
+            if (previous != null) {
+                deleteFiles(previous.entry());
+            }
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Set<String> live = new HashSet<>();
+            pending.values().forEach(p -> live.add(p.entry().id()));
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                int extension = fileName.indexOf('.');
+                String id = extension < 0 ? fileName : fileName.substring(0, extension);
+                if (!live.contains(id)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        int replayed = pending.size();
+        pending.keySet().forEach(this::schedule);
+        return replayed;
+    }
+
+    /**
+     * Durably writes the data to the spool and schedules its upload.
+     */
+    Entry spool(
+        String bucket,
+        String name,
+        String path,
+        @Nullable String tenantId,
+        @Nullable Map<String, String> metadata,
+        InputStream data
+    ) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Path dataFile = directory.resolve(id + DATA_EXTENSION);
+
+        long size;
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             OutputStream outputStream = Channels.newOutputStream(channel)) {
+            size = data.transferTo(outputStream);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(dataFile);
+            throw e;
+        }
+
+        Entry entry = new Entry(id, bucket, name, path, tenantId, metadata == null ? null : new HashMap<>(metadata), size, Instant.now());
+        try {
+            writeEntry(entry);
+        } catch (IOException e) {
+            Files.deleteIfExists(dataFile);
+            throw e;
+        }
+
+        Key key = new Key(bucket, name);
+        Pending previous = pending.put(key, new Pending(entry, new CompletableFuture<>()));
+        if (previous != null) {
+            deleteFiles(previous.entry());
+            previous.done().complete(null);
+        }
+        schedule(key);
+
+        return entry;
+    }
+
+    /**
+     * @return the pending write of the object, if any
+     */
+    Optional<Entry> pending(String bucket, String name) {
+        return Optional.ofNullable(pending.get(new Key(bucket, name))).map(Pending::entry);
+    }
+
+    /**
+     * @return the pending writes of the objects whose path starts with the prefix
+     */
+    List<Entry> pendingUnder(String bucket, String prefix) {
+        return pending.values().stream()
+            .map(Pending::entry)
+            .filter(entry -> entry.bucket().equals(bucket) && entry.path().startsWith(prefix))
+            .toList();
+    }
+
+    /**
+     * Opens the spooled data of a pending write.
+     *
+     * @throws java.nio.file.NoSuchFileException if the write has been uploaded or replaced since
+     */
+    InputStream open(Entry entry) throws IOException {
+        return Files.newInputStream(directory.resolve(entry.id() + DATA_EXTENSION));
+    }
+
+    /**
+     * Waits for the upload of the pending writes of the objects whose path starts with the prefix, so
+     * that they can be deleted or moved.
+     */
+    void flush(String bucket, String prefix, Duration timeout) throws IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            List<CompletableFuture<Void>> uploads = pending.values().stream()
+                .filter(p -> p.entry().bucket().equals(bucket) && p.entry().path().startsWith(prefix))
+                .map(Pending::done)
+                .toList();
+            if (uploads.isEmpty()) {
+                return;
+            }
+
+            try {
+                CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new IOException("Spooled writes under '" + prefix + "' were not uploaded within " + timeout, e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the spooled writes under '" + prefix + "'");
+            }
+        }
+    }
+
+    private void schedule(Key key) {
+        if (scheduled.add(key)) {
+            submit(() -> upload(key, 0), Duration.ZERO);
+        }
+    }
+
+    private void submit(Runnable task, Duration delay) {
+        try {
+            executor.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed, the entry will be uploaded on the next start
+        }
+    }
+
+    private void upload(Key key, int attempt) {
+        Pending current = pending.get(key);
+        if (current != null) {
+            try (InputStream data = open(current.entry())) {
+                uploader.upload(current.entry(), data);
+            } catch (IOException | RuntimeException e) {
+                if (pending.get(key) == current) {
+                    if (!closed) {
+                        Duration delay = retryDelay(attempt);
+                        log.warn("Failed to upload the spooled write of {}, retrying in {}s", current.entry().name(), delay.toSeconds(), e);
+                        submit(() -> upload(key, attempt + 1), delay);
+                    }
+                    return;
+                }
+                // replaced by a newer write meanwhile, upload it instead
+            }
+
+            // files first, so the write is only flushed once they are gone: readers still seeing it fall back to GCS
+            if (pending.get(key) == current) {
+                deleteFiles(current.entry());
+                if (pending.remove(key, current)) {
+                    current.done().complete(null);
+                }
+            }
+        }
+
+        // a write may have been spooled while this one was uploading
+        scheduled.remove(key);
+        if (pending.containsKey(key)) {
+            schedule(key);
+        }
+    }
+
+    static Duration retryDelay(int attempt) {
+        long delay = MIN_RETRY_DELAY.toMillis() << Math.min(attempt, 20);
+        return Duration.ofMillis(Math.min(delay, MAX_RETRY_DELAY.toMillis()));
+    }
+
+    private void writeEntry(Entry entry) throws IOException {
+        Path file = directory.resolve(entry.id() + ENTRY_EXTENSION);
+        Path temp = Files.createTempFile(directory, entry.id(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(Channels.newOutputStream(channel))) {
+                objectOutputStream.writeObject(entry);
+                objectOutputStream.flush();
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // make the new file name durable too
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on all platforms
+        }
+    }
+
+    private Optional<Entry> readEntry(Path file) {
+        try (InputStream inputStream = Files.newInputStream(file);
+             ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            Entry entry = (Entry) objectInputStream.readObject();
+            if (Files.exists(directory.resolve(entry.id() + DATA_EXTENSION))) {
+                return Optional.of(entry);
+            }
+            log.warn("Spooled write {} has no data, it is discarded", file.getFileName());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Unable to read the spooled write {}, it is discarded", file.getFileName(), e);
+        }
+        return Optional.empty();
+    }
+
+    private void deleteFiles(Entry entry) {
+        try {
+            Files.deleteIfExists(directory.resolve(entry.id() + ENTRY_EXTENSION));
+            Files.deleteIfExists(directory.resolve(entry.id() + DATA_EXTENSION));
+        } catch (IOException e) {
+            log.warn("Unable to delete the spooled write of {}", entry.name(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<CompletableFuture<Void>> uploads = pending.values().stream().map(Pending::done).toList();
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("{} spooled writes are not uploaded yet, they will be uploaded on the next start from {}", pending.size(), directory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        closed = true;
+        executor.shutdownNow();
+    }
+}
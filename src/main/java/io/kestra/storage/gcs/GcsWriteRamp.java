@@ -0,0 +1,84 @@
+package io.kestra.storage.gcs;
+
+import java.time.Duration;
+
+import com.google.cloud.storage.StorageException;
+
+/**
+ * Client-side write rate limiter following the GCS request rate guidelines: start at an initial
+ * rate and double it at most every {@code interval} while writes keep coming, so GCS has time to
+ * split the key ranges before they get throttled with 429/503 errors.
+ * <p>
+ * The ramp starts over after an idle period of one interval, as GCS scales the key ranges back down
+ * once the load is gone.
+ */
+class GcsWriteRamp {
+    // Past this rate, GCS no longer needs to be warmed up and the ramp stops throttling.
+    private static final double MAX_RATE = 1_000_000;
+
+    private final double initialRate;
+    private final long intervalNanos;
+
+    private long rampStart;
+    private long lastWrite;
+    private long nextFree;
+
+    GcsWriteRamp(int initialRate, Duration interval) {
+        if (initialRate <= 0) {
+            throw new IllegalArgumentException("Write ramp initial rate must be positive, got " + initialRate);
+        }
+
+        this.initialRate = initialRate;
+        this.intervalNanos = interval.toNanos();
+        this.rampStart = System.nanoTime();
+        this.lastWrite = this.rampStart;
+        this.nextFree = this.rampStart;
+    }
+
+    /**
+     * Blocks until {@code permits} writes can be sent without exceeding the current rate.
+     */
+    void acquire(int permits) {
+        long wait = reserve(permits, System.nanoTime());
+        if (wait <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(0, "Interrupted while waiting for the GCS write rate ramp", e);
+        }
+    }
+
+    /**
+     * Reserves {@code permits} writes at {@code now}.
+     *
+     * @return how long the caller must wait before sending them, in nanoseconds
+     */
+    synchronized long reserve(int permits, long now) {
+        if (now - lastWrite > intervalNanos) {
+            rampStart = now;
+            nextFree = now;
+        }
+        lastWrite = now;
+
+        double rate = rate(now);
+        if (rate >= MAX_RATE) {
+            return 0;
+        }
+
+        long start = Math.max(nextFree, now);
+        nextFree = start + (long) (permits * 1_000_000_000L / rate);
+        return start - now;
+    }
+
+    /**
+     * @return the allowed rate in writes per second at {@code now}
+     */
+    synchronized double rate(long now) {
+        long doublings = (now - rampStart) / intervalNanos;
+        return initialRate * Math.pow(2, Math.min(doublings, 30));
+    }
+}
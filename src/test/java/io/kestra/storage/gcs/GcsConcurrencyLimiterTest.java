@@ -0,0 +1,198 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.StorageException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsConcurrencyLimiterTest {
+
+    @Test
+    void limitShrinksOnOverload() {
+        var limiter = new GcsConcurrencyLimiter(100);
+        assertThat(limiter.limit(), is(20));
+
+        assertThrows(StorageException.class, () -> limiter.call("main", true, () -> {
+            throw new StorageException(503, "Service Unavailable");
+        }));
+        assertThat(limiter.limit(), is(18));
+
+        assertThrows(StorageException.class, () -> limiter.call("main", true, () -> {
+            throw new StorageException(429, "Too Many Requests");
+        }));
+        assertThat(limiter.limit(), is(16));
+
+        // other errors are not a sign of overload
+        assertThrows(StorageException.class, () -> limiter.call("main", true, () -> {
+            throw new StorageException(404, "Not Found");
+        }));
+        assertThat(limiter.limit(), is(16));
+    }
+
+    @Test
+    void limitGrowsWhenUsed() throws Exception {
+        var limiter = new GcsConcurrencyLimiter(100);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int round = 0; round < 5; round++) {
+                var running = new CountDownLatch(16);
+                var release = new CountDownLatch(1);
+                List<Future<?>> calls = new ArrayList<>();
+                for (int i = 0; i < 16; i++) {
+                    calls.add(executor.submit(() -> limiter.call("main", false, () -> {
+                        running.countDown();
+                        return release.await(5, TimeUnit.SECONDS);
+                    })));
+                }
+                running.await(5, TimeUnit.SECONDS);
+                release.countDown();
+                for (Future<?> call : calls) {
+                    call.get();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(limiter.limit(), greaterThan(20));
+    }
+
+    @Test
+    void concurrencyNeverExceedsMax() throws Exception {
+        var limiter = new GcsConcurrencyLimiter(4);
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 48; i++) {
+                String tenantId = "tenant-" + (i % 3);
+                calls.add(executor.submit(() -> limiter.call(tenantId, true, () -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    Thread.sleep(2);
+                    return inFlight.decrementAndGet();
+                })));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(4));
+    }
+
+    @Test
+    void waitingTenantsAreServedInTurn() throws Exception {
+        var limiter = new GcsConcurrencyLimiter(1);
+        var order = new CopyOnWriteArrayList<String>();
+        var busy = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            calls.add(executor.submit(() -> limiter.call("busy", true, () -> {
+                busy.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            })));
+            busy.await(5, TimeUnit.SECONDS);
+
+            // a burst of one tenant, then a single request of another one
+            for (String tenantId : List.of("a", "a", "a", "b")) {
+                calls.add(executor.submit(() -> limiter.call(tenantId, true, () -> order.add(tenantId))));
+                awaitQueued(limiter, calls.size() - 1);
+            }
+
+            release.countDown();
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(order, contains("a", "b", "a", "a"));
+    }
+
+    @Test
+    void uploadsDontHoldTheLimitOfOtherRequests() throws Exception {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(new GcsFakeStorage(Duration.ZERO, 0).client())
+            .adaptiveConcurrency(true)
+            .maxConcurrency(1)
+            .build();
+        storage.init();
+        storage.put("main", null, URI.create("/a/small.txt"), new ByteArrayInputStream("hello".getBytes()));
+
+        var reading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var sent = new AtomicBoolean();
+        // an upload whose data is slow to come
+        InputStream data = new SequenceInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                sent.set(true);
+                return -1;
+            }
+        }, new ByteArrayInputStream("world".getBytes()));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> upload = executor.submit(() -> storage.put("main", null, URI.create("/a/slow.txt"), data));
+            assertThat(reading.await(5, TimeUnit.SECONDS), is(true));
+
+            try (InputStream inputStream = storage.get("main", null, URI.create("/a/small.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("hello"));
+            }
+            // read while the upload was still waiting for its data
+            assertThat(sent.get(), is(false));
+
+            release.countDown();
+            upload.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            storage.close();
+        }
+    }
+
+    private static void awaitQueued(GcsConcurrencyLimiter limiter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.queued() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsCrc32cTest {
+
+    @Test
+    void checksumIsEncodedLikeGcs() {
+        // the example of the GCS documentation
+        assertThat(GcsCrc32c.of("hello".getBytes(StandardCharsets.UTF_8)), is("mnG7TA=="));
+        assertThat(GcsCrc32c.of(new byte[0]), is("AAAAAA=="));
+    }
+
+    @Test
+    void matchingDataIsRead() throws IOException {
+        try (InputStream inputStream = GcsCrc32c.verifying(data("hello"), GcsCrc32c.of(bytes("hello")), "file.txt")) {
+            assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), is("hello"));
+        }
+    }
+
+    @Test
+    void corruptedDataFailsAtTheEnd() throws IOException {
+        try (InputStream inputStream = GcsCrc32c.verifying(data("hellO"), GcsCrc32c.of(bytes("hello")), "file.txt")) {
+            assertThat(inputStream.read(new byte[4]), is(4));
+
+            IOException exception = assertThrows(IOException.class, inputStream::readAllBytes);
+            assertThat(exception.getMessage(), is("CRC32C mismatch on 'file.txt': expected mnG7TA== but got " + GcsCrc32c.of(bytes("hellO"))));
+        }
+    }
+
+    @Test
+    void skippedDataIsChecked() throws IOException {
+        try (InputStream inputStream = GcsCrc32c.verifying(data("hellO"), GcsCrc32c.of(bytes("hello")), "file.txt")) {
+            assertThat(inputStream.skip(4), is(4L));
+            assertThrows(IOException.class, () -> inputStream.skip(10));
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteArrayInputStream data(String content) {
+        return new ByteArrayInputStream(bytes(content));
+    }
+}
@@ -0,0 +1,228 @@
+package io.kestra.storage.gcs;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.services.storage.model.StorageObject;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.Tuple;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import com.google.cloud.storage.StorageOptions;
+import com.google.cloud.storage.contrib.nio.testing.LocalStorageHelper;
+import com.google.cloud.storage.spi.v1.RpcBatch;
+import com.google.cloud.storage.spi.v1.StorageRpc;
+
+/**
+ * In-memory GCS stand-in adding a latency and transient 503 errors to every request, on top of the
+ * fake of {@code google-cloud-nio} which it completes with batch deletes.
+ */
+class GcsFakeStorage {
+    // the requests going over the network, the others are local helpers of the client
+    private static final Set<String> REQUESTS = Set.of(
+        "create", "get", "list", "delete", "load", "read", "open", "openRewrite", "continueRewrite", "patch", "compose"
+    );
+
+    private final StorageRpc delegate = (StorageRpc) LocalStorageHelper.customOptions(false).getRpc();
+    private final Duration latency;
+    private final double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<String, AtomicLong> methods = new ConcurrentHashMap<>();
+    private final Map<String, Runnable> beforeNext = new ConcurrentHashMap<>();
+    private volatile int pageSize = Integer.MAX_VALUE;
+
+    /**
+     * @param latency the average latency of a request, each request takes between half and one and a half of it
+     * @param errorRate the ratio of requests failing with a 503
+     */
+    GcsFakeStorage(Duration latency, double errorRate) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return a new client of the fake, all the clients of a fake share the same objects
+     */
+    @SuppressWarnings("unchecked")
+    Storage client() {
+        StorageRpc rpc = (StorageRpc) Proxy.newProxyInstance(
+            GcsFakeStorage.class.getClassLoader(),
+            new Class<?>[]{StorageRpc.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("createBatch")) {
+                    return new Batch();
+                }
+                Runnable action = beforeNext.remove(method.getName());
+                if (action != null) {
+                    action.run();
+                }
+                if (REQUESTS.contains(method.getName())) {
+                    methods.computeIfAbsent(method.getName(), name -> new AtomicLong()).incrementAndGet();
+                    request();
+                }
+                if (args != null && args.length > 0 && args[0] instanceof StorageObject object) {
+                    created(method.getName(), object);
+                }
+                boolean listing = method.getName().equals("list") && args.length == 2;
+                Map<StorageRpc.Option, ?> options = listing ? (Map<StorageRpc.Option, ?>) args[1] : Map.of();
+                if (listing) {
+                    // the fake truncates the listings instead of paging them
+                    Map<StorageRpc.Option, Object> unpaged = new HashMap<>(options);
+                    unpaged.remove(StorageRpc.Option.MAX_RESULTS);
+                    unpaged.remove(StorageRpc.Option.PAGE_TOKEN);
+                    args = new Object[]{args[0], unpaged};
+                }
+                Object result;
+                try {
+                    result = method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return listing ? page(sorted(result), options) : result;
+            }
+        );
+
+        return StorageOptions.newBuilder()
+            .setProjectId("fake-project")
+            .setCredentials(NoCredentials.getInstance())
+            .setServiceRpcFactory(options -> rpc)
+            .build()
+            .getService();
+    }
+
+    /**
+     * Splits the listings in pages of at most the given number of objects, as GCS does with 1000 objects.
+     */
+    void pageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of requests of a {@link StorageRpc} method, e.g. {@code open} for the start of resumable uploads
+     */
+    long requests(String method) {
+        AtomicLong count = methods.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Runs an action right before the next request of a {@link StorageRpc} method, e.g. a concurrent write.
+     */
+    void beforeNext(String method, Runnable action) {
+        beforeNext.put(method, action);
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    /**
+     * Sets the fields GCS sets on the objects created, and the fake of {@code google-cloud-nio} doesn't.
+     */
+    private void created(String method, StorageObject object) {
+        if (method.equals("create") || method.equals("open")) {
+            if (object.getContentType() == null) {
+                object.setContentType("application/octet-stream");
+            }
+        }
+        // resumable uploads are given a generation by the fake already
+        if (method.equals("create")) {
+            object.setGeneration(generations.incrementAndGet());
+        }
+    }
+
+    /**
+     * Sorts listed objects by name, as GCS does and the fake of {@code google-cloud-nio} doesn't.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<StorageObject> sorted(Object listing) {
+        Tuple<String, Iterable<StorageObject>> page = (Tuple<String, Iterable<StorageObject>>) listing;
+        List<StorageObject> objects = new ArrayList<>();
+        page.y().forEach(objects::add);
+        objects.sort(Comparator.comparing(StorageObject::getName));
+        return objects;
+    }
+
+    /**
+     * @return the page of the listing starting at the page token, the index of its first object
+     */
+    private Tuple<String, Iterable<StorageObject>> page(List<StorageObject> objects, Map<StorageRpc.Option, ?> options) {
+        Object maxResults = options.get(StorageRpc.Option.MAX_RESULTS);
+        int size = maxResults == null ? pageSize : (int) Math.min(pageSize, ((Number) maxResults).longValue());
+        Object token = options.get(StorageRpc.Option.PAGE_TOKEN);
+        int start = token == null ? 0 : Integer.parseInt(token.toString());
+        int end = (int) Math.min(objects.size(), (long) start + size);
+        return Tuple.of(end < objects.size() ? String.valueOf(end) : null, objects.subList(start, end));
+    }
+
+    private void request() {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nanos = (long) (latency.toNanos() * (0.5 + random.nextDouble()));
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(0, "Interrupted", e);
+        }
+        if (random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            throw new StorageException(503, "Injected error");
+        }
+    }
+
+    /**
+     * A batch sent as one request, whose deletes are applied one by one.
+     */
+    private class Batch implements RpcBatch {
+        private final List<Runnable> deletes = new ArrayList<>();
+
+        @Override
+        public void addDelete(StorageObject storageObject, Callback<Void> callback, Map<StorageRpc.Option, ?> options) {
+            deletes.add(() -> {
+                if (delegate.delete(storageObject, options)) {
+                    callback.onSuccess(null);
+                } else {
+                    GoogleJsonError error = new GoogleJsonError();
+                    error.setCode(404);
+                    error.setMessage("Not Found");
+                    callback.onFailure(error);
+                }
+            });
+        }
+
+        @Override
+        public void addPatch(StorageObject storageObject, Callback<StorageObject> callback, Map<StorageRpc.Option, ?> options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addGet(StorageObject storageObject, Callback<StorageObject> callback, Map<StorageRpc.Option, ?> options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void submit() {
+            request();
+            deletes.forEach(Runnable::run);
+        }
+    }
+}
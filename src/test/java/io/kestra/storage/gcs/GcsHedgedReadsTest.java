@@ -0,0 +1,84 @@
+package io.kestra.storage.gcs;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class GcsHedgedReadsTest {
+
+    @Test
+    void slowReadIsHedgedAndFirstResponseWins() {
+        try (var hedging = new GcsHedgedReads(95, 0.5, Duration.ofMillis(10))) {
+            var calls = new AtomicInteger();
+            var release = new CountDownLatch(1);
+
+            String result = hedging.call(() -> {
+                if (calls.incrementAndGet() == 1) {
+                    // the primary request hangs until the test ends
+                    await(release);
+                    return "primary";
+                }
+                return "hedge";
+            });
+
+            assertThat(result, is("hedge"));
+            assertThat(calls.get(), is(2));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void noHedgeWithoutBudget() {
+        try (var hedging = new GcsHedgedReads(95, 0, Duration.ofMillis(1))) {
+            var calls = new AtomicInteger();
+
+            // the initial tokens allow a burst of 10 hedges, exhaust them with some margin as a slow
+            // scheduling can let a primary read answer before its hedge is sent
+            for (int i = 0; i < 30; i++) {
+                hedging.call(() -> sleep(5));
+            }
+
+            calls.set(0);
+            hedging.call(() -> {
+                calls.incrementAndGet();
+                return sleep(20);
+            });
+
+            assertThat(calls.get(), is(1));
+        }
+    }
+
+    @Test
+    void delayAdaptsToObservedLatencies() {
+        try (var hedging = new GcsHedgedReads(90, 0.1, Duration.ofMillis(1))) {
+            for (int i = 1; i <= 100; i++) {
+                hedging.observe(TimeUnit.MILLISECONDS.toNanos(i));
+            }
+
+            assertThat(hedging.delay(), is(Duration.ofMillis(90)));
+        }
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
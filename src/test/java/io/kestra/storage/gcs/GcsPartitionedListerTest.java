@@ -0,0 +1,111 @@
+package io.kestra.storage.gcs;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+
+import io.opentelemetry.api.OpenTelemetry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+class GcsPartitionedListerTest {
+    private static final Comparator<Blob> BY_NAME = Comparator.comparing(Blob::getName);
+
+    private final GcsFakeStorage fake = new GcsFakeStorage(Duration.ZERO, 0);
+    private final Storage client = fake.client();
+    private final GcsPartitionedLister lister = new GcsPartitionedLister(Executors.newFixedThreadPool(4), 4, new GcsTracer(OpenTelemetry.noop()));
+
+    @AfterEach
+    void close() {
+        lister.close();
+    }
+
+    @Test
+    void everyObjectIsListedOnce() {
+        fake.pageSize(2);
+        List<String> names = create(
+            "main/", "main/a.txt", "main/z.txt",
+            "main/ns/", "main/ns/b.txt", "main/ns/flow/c.txt", "main/ns/flow/d/e.txt",
+            "main/other/f.txt", "main/other/g/h.txt", "other-tenant/i.txt"
+        );
+
+        List<String> listed = names(lister.list(client, "bucket", null, List.of("main/"), null).toList());
+
+        assertThat(listed, containsInAnyOrder(names.stream().filter(name -> name.startsWith("main/")).toArray()));
+    }
+
+    @Test
+    void objectsAreMergedInNameOrder() {
+        fake.pageSize(2);
+        List<String> names = create(
+            "main/", "main/a.txt", "main/m.txt", "main/z.txt",
+            "main/b/", "main/b/1.txt", "main/b/c/2.txt", "main/b/c/d/3.txt",
+            "main/n/4.txt", "main/n/o/5.txt", "main/y/6.txt"
+        );
+
+        List<String> listed = names(lister.list(client, "bucket", null, List.of("main/"), BY_NAME).toList());
+
+        assertThat(listed, is(names.stream().sorted().toList()));
+    }
+
+    @Test
+    void prefixesAreMergedInTheGivenOrder() {
+        // only the second prefix has more than a page
+        fake.pageSize(2);
+        create("0/main/b.txt", "0/main/d/e.txt", "1/main/a.txt", "1/main/c.txt", "1/main/d/f.txt");
+        // like the shards, ordered without their first segment
+        Comparator<Blob> order = Comparator.comparing(blob -> blob.getName().substring(2));
+
+        List<String> listed = names(lister.list(client, "bucket", null, List.of("0/main/", "1/main/"), order).toList());
+
+        assertThat(listed, is(List.of("1/main/a.txt", "0/main/b.txt", "1/main/c.txt", "0/main/d/e.txt", "1/main/d/f.txt")));
+    }
+
+    @Test
+    void aSinglePageIsNotPartitioned() {
+        List<String> names = create("main/a.txt", "main/ns/b.txt", "main/ns/flow/c.txt", "main/other/d/e.txt");
+
+        List<String> listed = names(lister.list(client, "bucket", null, List.of("main/"), BY_NAME).toList());
+
+        assertThat(listed, is(names));
+        assertThat(fake.requests("list"), is(1L));
+    }
+
+    @Test
+    void discoveryStopsDescending() {
+        fake.pageSize(2);
+        // a single chain of sub-prefixes never gives enough partitions
+        create("main/a/1.txt", "main/a/b/2.txt", "main/a/b/c/3.txt", "main/a/b/c/d/4.txt", "main/a/b/c/d/e/5.txt", "main/a/b/c/d/e/f/6.txt");
+
+        List<String> listed = names(lister.list(client, "bucket", null, List.of("main/"), null).toList());
+
+        assertThat(listed.size(), is(6));
+        // the first page, 4 discovery listings, then the objects directly under the 4 levels and the 2 pages of the remaining partition
+        assertThat(fake.requests("list"), is(1L + 4 + 4 + 2));
+    }
+
+    private List<String> create(String... names) {
+        List<String> created = new ArrayList<>();
+        for (String name : names) {
+            client.create(BlobInfo.newBuilder(BlobId.of("bucket", name)).build(), new byte[0]);
+            created.add(name);
+        }
+        return created;
+    }
+
+    private static List<String> names(List<Blob> blobs) {
+        return blobs.stream().map(Blob::getName).toList();
+    }
+}
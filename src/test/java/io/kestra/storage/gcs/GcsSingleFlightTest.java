@@ -0,0 +1,162 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.StorageException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsSingleFlightTest {
+
+    @Test
+    void concurrentCallsShareOneRequest() throws Exception {
+        var singleFlight = new GcsSingleFlight<String, String>();
+        var calls = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            var leader = executor.submit(() -> singleFlight.call("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "value";
+            }));
+            started.await(5, TimeUnit.SECONDS);
+
+            var followers = new ArrayList<Future<String>>();
+            for (int i = 0; i < 9; i++) {
+                followers.add(executor.submit(() -> singleFlight.call("key", () -> {
+                    calls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            awaitWaiters(singleFlight, "key", 9);
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS), is("value"));
+            for (var follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS), is("value"));
+            }
+            assertThat(calls.get(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completedCallsAreNotCached() {
+        var singleFlight = new GcsSingleFlight<String, Integer>();
+        var calls = new AtomicInteger();
+
+        assertThat(singleFlight.call("key", calls::incrementAndGet), is(1));
+        assertThat(singleFlight.call("key", calls::incrementAndGet), is(2));
+    }
+
+    @Test
+    void failuresArePropagated() {
+        var singleFlight = new GcsSingleFlight<String, String>();
+
+        assertThrows(StorageException.class, () -> singleFlight.call("key", () -> {
+            throw new StorageException(503, "unavailable");
+        }));
+        assertThat(singleFlight.call("key", () -> "recovered"), is("recovered"));
+    }
+
+    @Test
+    void forgottenCallsAreNotShared() throws Exception {
+        var singleFlight = new GcsSingleFlight<String, String>();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var leader = executor.submit(() -> singleFlight.call("key", () -> {
+                started.countDown();
+                await(release);
+                return "before";
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            var follower = executor.submit(() -> singleFlight.call("key", () -> "other"));
+            awaitWaiters(singleFlight, "key", 1);
+
+            singleFlight.forget(key -> key.equals("key"));
+
+            // sent again, while the waiters of the forgotten call still get its result
+            assertThat(singleFlight.call("key", () -> "after"), is("after"));
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS), is("before"));
+            assertThat(follower.get(5, TimeUnit.SECONDS), is("before"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void readsAfterAPutDontShareALookupStartedBefore() throws Exception {
+        var lookups = new GcsSingleFlight<BlobId, Blob>();
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(new GcsFakeStorage(Duration.ZERO, 0).client())
+            .metadataLookups(lookups)
+            .build();
+        storage.init();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // a lookup of the object started before the put, not finding it
+            var before = executor.submit(() -> lookups.call(BlobId.of("bucket", "main/file.txt"), () -> {
+                started.countDown();
+                await(release);
+                return null;
+            }));
+            started.await(5, TimeUnit.SECONDS);
+
+            storage.put("main", null, URI.create("/file.txt"), new ByteArrayInputStream("hello".getBytes()));
+            try (InputStream inputStream = storage.get("main", null, URI.create("/file.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("hello"));
+            }
+
+            release.countDown();
+            before.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            storage.close();
+        }
+    }
+
+    private static <K> void awaitWaiters(GcsSingleFlight<K, ?> singleFlight, K key, int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.waiters(key) < waiters && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertThat(singleFlight.waiters(key), is(waiters));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.BlobId;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class GcsStorageBucketRoutingTest {
+
+    private static GcsStorage storage(String... buckets) {
+        List<GcsBucket> stripes = new ArrayList<>();
+        for (String bucket : buckets) {
+            stripes.add(GcsBucket.builder().name(bucket).build());
+        }
+        return GcsStorage.builder()
+            .bucket("main-bucket")
+            .buckets(stripes)
+            .build();
+    }
+
+    @Test
+    void withoutBucketsEverythingGoesToTheMainBucket() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("main-bucket")
+            .build();
+
+        assertThat(storage.bucketFor("main"), is("main-bucket"));
+        assertThat(storage.bucketFor(null), is("main-bucket"));
+    }
+
+    @Test
+    void tenantsAreSpreadOverAllBuckets() {
+        GcsStorage storage = storage("bucket-1", "bucket-2");
+
+        var used = new HashSet<String>();
+        for (int i = 0; i < 100; i++) {
+            String bucket = storage.bucketFor("tenant-" + i);
+            assertThat(storage.bucketFor("tenant-" + i), is(bucket));
+            used.add(bucket);
+        }
+
+        assertThat(used, containsInAnyOrder("main-bucket", "bucket-1", "bucket-2"));
+        assertThat(storage.bucketFor(null), is("main-bucket"));
+    }
+
+    @Test
+    void addingABucketOnlyMovesTenantsToTheNewBucket() {
+        GcsStorage before = storage("bucket-1", "bucket-2");
+        GcsStorage after = storage("bucket-1", "bucket-2", "bucket-3");
+
+        Map<String, String> moved = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            String tenant = "tenant-" + i;
+            if (!before.bucketFor(tenant).equals(after.bucketFor(tenant))) {
+                moved.put(tenant, after.bucketFor(tenant));
+            }
+        }
+
+        assertThat(moved, is(not(anEmptyMap())));
+        assertThat(new HashSet<>(moved.values()), contains("bucket-3"));
+    }
+
+    @Test
+    void requestsGoThroughTheClientOfTheRoutedBucket() throws IOException {
+        var mainFake = new GcsFakeStorage(Duration.ZERO, 0);
+        var stripeFake = new GcsFakeStorage(Duration.ZERO, 0);
+        var stripeClient = stripeFake.client();
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("main-bucket")
+            .buckets(List.of(GcsBucket.builder().name("bucket-1").build()))
+            .storage(mainFake.client())
+            .bucketStorages(new HashMap<>(Map.of("main-bucket", mainFake.client(), "bucket-1", stripeClient)))
+            .build();
+        storage.init();
+        String tenant = "tenant-0";
+        for (int i = 1; !storage.bucketFor(tenant).equals("bucket-1"); i++) {
+            tenant = "tenant-" + i;
+        }
+
+        try {
+            storage.put(tenant, null, URI.create("/a/file.txt"), new ByteArrayInputStream("hello".getBytes()));
+            assertThat(stripeClient.get(BlobId.of("bucket-1", tenant + "/a/file.txt")), is(notNullValue()));
+            try (InputStream inputStream = storage.get(tenant, null, URI.create("/a/file.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("hello"));
+            }
+            assertThat(storage.list(tenant, null, URI.create("/a/")), hasSize(1));
+
+            storage.move(tenant, null, URI.create("/a/file.txt"), URI.create("/b/file.txt"));
+            assertThat(stripeClient.get(BlobId.of("bucket-1", tenant + "/b/file.txt")), is(notNullValue()));
+
+            storage.put(tenant, null, URI.create("/c/file.txt"), new ByteArrayInputStream("hello".getBytes()));
+            assertThat(storage.deleteByPrefix(tenant, null, URI.create("/c/")), hasItem(URI.create("kestra:///c/file.txt")));
+            assertThat(
+                storage.purgeByLastModified(tenant, null, URI.create("/b/"), null, Instant.now().plusSeconds(60), false),
+                contains(URI.create("kestra:///b/file.txt"))
+            );
+            assertThat(stripeClient.get(BlobId.of("bucket-1", tenant + "/b/file.txt")), is(nullValue()));
+
+            assertThat(mainFake.requests(), is(0L));
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.BlobWriteSession;
+import com.google.cloud.storage.Storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsStorageChecksumTest {
+    private static final URI URI = java.net.URI.create("/company/team/file.txt");
+
+    private final Storage client = new GcsFakeStorage(Duration.ZERO, 0).client();
+    private GcsStorage storage;
+
+    @AfterEach
+    void close() {
+        storage.close();
+    }
+
+    @Test
+    void checksumIsSentWithTheUpload() throws IOException {
+        storage = storage(256L * 1024);
+        storage.put("main", "company.team", URI, new ByteArrayInputStream("hello".getBytes()));
+
+        assertThat(client.get(blobId()).getCrc32c(), is("mnG7TA=="));
+        try (InputStream inputStream = storage.get("main", "company.team", URI)) {
+            assertThat(new String(inputStream.readAllBytes()), is("hello"));
+        }
+    }
+
+    @Test
+    void corruptedObjectIsNotRead() throws IOException {
+        storage = storage(256L * 1024);
+        corrupted("hello");
+
+        assertThrows(IOException.class, () -> storage.get("main", "company.team", URI));
+    }
+
+    @Test
+    void corruptedStreamedObjectFailsAtTheEnd() throws IOException {
+        storage = storage(0L);
+        corrupted("hello");
+
+        try (InputStream inputStream = storage.get("main", "company.team", URI)) {
+            assertThrows(IOException.class, inputStream::readAllBytes);
+        }
+    }
+
+    private GcsStorage storage(long coalescedReadMaxSize) {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("kestra-checksums")
+            .storage(client)
+            .coalescedReadMaxSize(coalescedReadMaxSize)
+            .build();
+        storage.init();
+        return storage;
+    }
+
+    private BlobId blobId() {
+        return BlobId.of("kestra-checksums", storage.getPath("main", URI));
+    }
+
+    // the fake GCS doesn't check the checksum it is given, unlike GCS
+    private void corrupted(String content) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(blobId()).setCrc32c(GcsCrc32c.of("other".getBytes())).build();
+        BlobWriteSession session = client.blobWriteSession(blobInfo, Storage.BlobWriteOption.crc32cMatch());
+        try (WritableByteChannel writer = session.open()) {
+            writer.write(ByteBuffer.wrap(content.getBytes()));
+        }
+    }
+}
@@ -1,11 +1,30 @@
 package io.kestra.storage.gcs;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
+import com.google.cloud.storage.Storage;
+
+import io.kestra.core.storages.FileAttributes;
+
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.startsWith;
 
 class GcsStoragePathTest {
 
@@ -51,4 +70,151 @@ class GcsStoragePathTest {
         String result = storage.getPath(URI.create("/folder1/folder2"));
         assertThat(result, is("folder1/folder2"));
     }
+
+    @Test
+    void objectNameWithoutShards() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .build();
+
+        assertThat(storage.objectName("main/folder1/file.txt"), is("main/folder1/file.txt"));
+        assertThat(storage.logicalName("main/folder1/file.txt"), is("main/folder1/file.txt"));
+    }
+
+    @Test
+    void objectNameWithShards() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .shards(16)
+            .build();
+
+        String objectName = storage.objectName("main/folder1/file.txt");
+        assertThat(objectName, matchesPattern("[0-9a-f]/main/folder1/file.txt"));
+        assertThat(storage.objectName("main/folder1/file.txt"), is(objectName));
+        assertThat(storage.logicalName(objectName), is("main/folder1/file.txt"));
+
+        Set<String> shards = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            shards.add(storage.objectName("main/folder1/file-" + i + ".txt").substring(0, 2));
+        }
+        assertThat(shards, hasSize(16));
+    }
+
+    @Test
+    void objectNameWithShardsIsUnderThePrefix() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .path("instance-a")
+            .shards(16)
+            .build();
+
+        String objectName = storage.objectName(storage.getPath("main", URI.create("/folder1/file.txt")));
+        assertThat(objectName, matchesPattern("instance-a/[0-9a-f]/main/folder1/file.txt"));
+        assertThat(storage.logicalName(objectName), is("instance-a/main/folder1/file.txt"));
+        // the instance resources are not under the prefix
+        assertThat(storage.objectName("folder1/file.txt"), matchesPattern("[0-9a-f]/folder1/file.txt"));
+        assertThat(storage.logicalName(storage.objectName("folder1/file.txt")), is("folder1/file.txt"));
+    }
+
+    @Test
+    void shardedLayoutWithPrefixIsTransparent() throws IOException {
+        Storage client = new GcsFakeStorage(Duration.ZERO, 0).client();
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .path("instance-a")
+            .shards(16)
+            .storage(client)
+            .build();
+        storage.init();
+        try {
+            for (String file : List.of("/a/b/file1.txt", "/a/b/file2.txt", "/a/file3.txt")) {
+                storage.put("main", null, URI.create(file), new ByteArrayInputStream(file.getBytes()));
+            }
+
+            List<String> names = new ArrayList<>();
+            client.list("test-bucket").iterateAll().forEach(blob -> names.add(blob.getName()));
+            assertThat(names, everyItem(startsWith("instance-a/")));
+
+            try (InputStream inputStream = storage.get("main", null, URI.create("/a/b/file1.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("/a/b/file1.txt"));
+            }
+            assertThat(
+                storage.list("main", null, URI.create("/a/")).stream().map(FileAttributes::getFileName).toList(),
+                containsInAnyOrder("b", "file3.txt")
+            );
+            assertThat(storage.allByPrefix("main", null, URI.create("/a/"), false), containsInAnyOrder(
+                URI.create("kestra:///a/b/file1.txt"),
+                URI.create("kestra:///a/b/file2.txt"),
+                URI.create("kestra:///a/file3.txt")
+            ));
+            assertThat(storage.deleteByPrefix("main", null, URI.create("/a/b/")), hasItems(
+                URI.create("kestra:///a/b/file1.txt"),
+                URI.create("kestra:///a/b/file2.txt")
+            ));
+            assertThat(storage.exists("main", null, URI.create("/a/b/file1.txt")), is(false));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void objectNameShardWidth() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .shards(256)
+            .build();
+
+        assertThat(storage.objectName("main/file.txt"), matchesPattern("[0-9a-f]{2}/main/file.txt"));
+    }
+
+    @Test
+    void shardedLayoutIsTransparent() throws IOException {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("test-bucket")
+            .shards(16)
+            .storage(new GcsFakeStorage(Duration.ZERO, 0).client())
+            .build();
+        storage.init();
+        try {
+            for (String file : List.of("/a/b/file1.txt", "/a/b/file2.txt", "/a/c/file3.txt", "/a/file4.txt")) {
+                storage.put("main", null, URI.create(file), new ByteArrayInputStream(file.getBytes()));
+            }
+
+            try (InputStream inputStream = storage.get("main", null, URI.create("/a/b/file1.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("/a/b/file1.txt"));
+            }
+
+            // the directories have markers or files in several shards, they are listed once
+            assertThat(
+                storage.list("main", null, URI.create("/a/")).stream().map(FileAttributes::getFileName).toList(),
+                containsInAnyOrder("b", "c", "file4.txt")
+            );
+            assertThat(storage.allByPrefix("main", null, URI.create("/a/"), false), containsInAnyOrder(
+                URI.create("kestra:///a/b/file1.txt"),
+                URI.create("kestra:///a/b/file2.txt"),
+                URI.create("kestra:///a/c/file3.txt"),
+                URI.create("kestra:///a/file4.txt")
+            ));
+
+            FileAttributes directory = storage.getAttributes("main", null, URI.create("/a/b"));
+            assertThat(directory.getType(), is(FileAttributes.FileType.Directory));
+            assertThat(directory.getFileName(), is("b"));
+
+            assertThat(storage.move("main", null, URI.create("/a/c"), URI.create("/d")), is(URI.create("kestra:///d")));
+            assertThat(storage.exists("main", null, URI.create("/d/file3.txt")), is(true));
+            assertThat(storage.exists("main", null, URI.create("/a/c/file3.txt")), is(false));
+
+            List<URI> deleted = storage.deleteByPrefix("main", null, URI.create("/a/b/"));
+            assertThat(deleted, hasItems(URI.create("kestra:///a/b/file1.txt"), URI.create("kestra:///a/b/file2.txt")));
+            assertThat(deleted.stream().map(URI::toString).toList(), everyItem(startsWith("kestra:///a/b")));
+
+            assertThat(
+                storage.purgeByLastModified("main", null, URI.create("/d/"), null, Instant.now().plusSeconds(60), false),
+                containsInAnyOrder(URI.create("kestra:///d/file3.txt"))
+            );
+            assertThat(storage.exists("main", null, URI.create("/d/file3.txt")), is(false));
+        } finally {
+            storage.close();
+        }
+    }
 }
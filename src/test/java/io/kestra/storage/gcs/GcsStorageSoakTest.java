@@ -0,0 +1,261 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.kestra.core.utils.IdUtils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Replays the storage mix of Kestra executions against a fake GCS with an increasing number of
+ * threads, and reports the throughput and latencies of each step. Each execution puts many small
+ * task outputs, reads them back, lists them, and deletes them at cleanup, while the leftovers are
+ * purged periodically.
+ * <p>
+ * The test is long-running and only enabled with {@code GCS_SOAK=true}, the workload is set up
+ * with the following environment variables:
+ * <ul>
+ *     <li>{@code GCS_SOAK_MAX_THREADS}: the thread count is doubled from 1 up to it, 512 by default</li>
+ *     <li>{@code GCS_SOAK_STEP_SECONDS}: the duration of each step, 10 by default</li>
+ *     <li>{@code GCS_SOAK_OUTPUTS}: the number of outputs of an execution, 20 by default</li>
+ *     <li>{@code GCS_SOAK_LATENCY_MS}: the average latency of a GCS request, 5 by default</li>
+ *     <li>{@code GCS_SOAK_ERROR_RATE}: the ratio of GCS requests failing with a 503, 0.001 by default</li>
+ *     <li>{@code GCS_SOAK_ADAPTIVE_CONCURRENCY}: whether the adaptive concurrency limit is enabled, false by default</li>
+ * </ul>
+ */
+@EnabledIfEnvironmentVariable(named = "GCS_SOAK", matches = "true")
+class GcsStorageSoakTest {
+    private static final Logger log = LoggerFactory.getLogger(GcsStorageSoakTest.class);
+
+    private static final List<String> TENANTS = List.of("main", "tenant-1", "tenant-2", "tenant-3");
+    private static final List<String> NAMESPACES = List.of("company.team", "company.data", "company.ops");
+    private static final List<String> OPERATIONS = List.of("put", "get", "getAttributes", "list", "deleteByPrefix", "purgeByLastModified");
+
+    private static final Duration PURGE_INTERVAL = Duration.ofSeconds(5);
+    // older outputs are leftovers of executions whose cleanup failed
+    private static final Duration PURGE_AGE = Duration.ofSeconds(30);
+
+    private static final byte[] OUTPUT = new byte[1024];
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    private record Latencies(long count, long failures, long p50, long p99) {
+    }
+
+    private record Step(int threads, double seconds, long executions, Map<String, Latencies> latencies) {
+        long operations() {
+            return latencies.values().stream().mapToLong(Latencies::count).sum();
+        }
+
+        long failures() {
+            return latencies.values().stream().mapToLong(Latencies::failures).sum();
+        }
+    }
+
+    /**
+     * The latencies measured by one thread.
+     */
+    private static class Recorder {
+        private final Map<String, List<Long>> latencies = new HashMap<>();
+        private final Map<String, Long> failures = new HashMap<>();
+
+        void record(String operation, Operation call) {
+            long start = System.nanoTime();
+            try {
+                call.run();
+            } catch (Exception e) {
+                failures.merge(operation, 1L, Long::sum);
+            } finally {
+                latencies.computeIfAbsent(operation, key -> new ArrayList<>()).add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Test
+    void soak() throws Exception {
+        int maxThreads = env("GCS_SOAK_MAX_THREADS", 512);
+        Duration stepDuration = Duration.ofSeconds(env("GCS_SOAK_STEP_SECONDS", 10));
+        int outputs = env("GCS_SOAK_OUTPUTS", 20);
+        var fake = new GcsFakeStorage(
+            Duration.ofMillis(env("GCS_SOAK_LATENCY_MS", 5)),
+            Double.parseDouble(System.getenv().getOrDefault("GCS_SOAK_ERROR_RATE", "0.001"))
+        );
+        boolean adaptiveConcurrency = Boolean.parseBoolean(System.getenv("GCS_SOAK_ADAPTIVE_CONCURRENCY"));
+
+        List<Step> steps = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            GcsStorage storage = GcsStorage.builder()
+                .bucket("kestra-soak")
+                .storage(fake.client())
+                .adaptiveConcurrency(adaptiveConcurrency)
+                .build();
+            storage.init();
+            try {
+                Step step = run(storage, threads, stepDuration, outputs);
+                steps.add(step);
+                log.info("{} threads: {} executions/s, {} failures", threads, String.format("%.1f", step.executions() / step.seconds()), step.failures());
+            } finally {
+                storage.close();
+            }
+        }
+
+        report(steps, fake);
+        for (Step step : steps) {
+            assertThat(step.executions(), greaterThan(0L));
+        }
+    }
+
+    private static Step run(GcsStorage storage, int threads, Duration duration, int outputs) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService purges = Executors.newSingleThreadScheduledExecutor();
+        var purgeRecorder = new Recorder();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        try {
+            purges.scheduleWithFixedDelay(() -> purge(storage, purgeRecorder), PURGE_INTERVAL.toMillis(), PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+            List<Future<Recorder>> recorders = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                recorders.add(workers.submit(() -> {
+                    var recorder = new Recorder();
+                    while (System.nanoTime() < deadline) {
+                        execution(storage, recorder, outputs);
+                    }
+                    return recorder;
+                }));
+            }
+
+            List<Recorder> results = new ArrayList<>();
+            for (Future<Recorder> recorder : recorders) {
+                results.add(recorder.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            purges.shutdown();
+            purges.awaitTermination(1, TimeUnit.MINUTES);
+            results.add(purgeRecorder);
+
+            long executions = results.stream()
+                .mapToLong(recorder -> recorder.latencies.getOrDefault("deleteByPrefix", List.of()).size())
+                .sum();
+            return new Step(threads, seconds, executions, merge(results));
+        } finally {
+            workers.shutdownNow();
+            purges.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the storage calls of one execution: its task outputs are stored, read back by the next
+     * tasks, listed by the UI, and deleted at the end of the execution.
+     */
+    private static void execution(GcsStorage storage, Recorder recorder, int outputs) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String tenantId = TENANTS.get(random.nextInt(TENANTS.size()));
+        String namespace = NAMESPACES.get(random.nextInt(NAMESPACES.size()));
+        URI execution = URI.create("/" + namespace.replace('.', '/') + "/flow/executions/" + IdUtils.create() + "/");
+
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < outputs; i++) {
+            URI uri = execution.resolve("tasks/task-" + i + "/" + IdUtils.create() + "/output.ion");
+            uris.add(uri);
+            recorder.record("put", () -> storage.put(tenantId, namespace, uri, new ByteArrayInputStream(OUTPUT)));
+        }
+        for (URI uri : uris) {
+            recorder.record("getAttributes", () -> storage.getAttributes(tenantId, namespace, uri));
+            recorder.record("get", () -> {
+                try (InputStream inputStream = storage.get(tenantId, namespace, uri)) {
+                    inputStream.readAllBytes();
+                }
+            });
+        }
+        recorder.record("list", () -> storage.list(tenantId, namespace, execution.resolve("tasks/")));
+        recorder.record("deleteByPrefix", () -> storage.deleteByPrefix(tenantId, namespace, execution));
+    }
+
+    private static void purge(GcsStorage storage, Recorder recorder) {
+        for (String tenantId : TENANTS) {
+            for (String namespace : NAMESPACES) {
+                URI prefix = URI.create("/" + namespace.replace('.', '/') + "/");
+                recorder.record("purgeByLastModified", () -> storage.purgeByLastModified(tenantId, namespace, prefix, null, Instant.now().minus(PURGE_AGE), false));
+            }
+        }
+    }
+
+    private static Map<String, Latencies> merge(List<Recorder> recorders) {
+        Map<String, Latencies> merged = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            long[] latencies = recorders.stream()
+                .flatMap(recorder -> recorder.latencies.getOrDefault(operation, List.of()).stream())
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray();
+            long failures = recorders.stream()
+                .mapToLong(recorder -> recorder.failures.getOrDefault(operation, 0L))
+                .sum();
+            merged.put(operation, new Latencies(latencies.length, failures, percentile(latencies, 0.5), percentile(latencies, 0.99)));
+        }
+        return merged;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static void report(List<Step> steps, GcsFakeStorage fake) {
+        var report = new StringBuilder("GCS soak test, p50/p99 latencies in ms\n");
+        report.append(String.format("%8s %12s %10s %9s", "threads", "executions/s", "ops/s", "failures"));
+        OPERATIONS.forEach(operation -> report.append(String.format(" %20s", operation)));
+        report.append('\n');
+
+        for (Step step : steps) {
+            report.append(String.format(
+                "%8d %12.1f %10.1f %9d",
+                step.threads(), step.executions() / step.seconds(), step.operations() / step.seconds(), step.failures()
+            ));
+            for (String operation : OPERATIONS) {
+                Latencies latencies = step.latencies().get(operation);
+                report.append(String.format(" %20s", latencies.count() == 0 ?
+                    "-" :
+                    String.format("%.1f/%.1f", latencies.p50() / 1e6, latencies.p99() / 1e6)
+                ));
+            }
+            report.append('\n');
+        }
+        report.append(String.format("%d GCS requests, %d injected errors", fake.requests(), fake.errors()));
+
+        log.info(report.toString());
+    }
+
+    private static int env(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,195 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class GcsStorageUsageTest {
+    private static final GcsUsage.Key TEAM = new GcsUsage.Key("main", "company.team");
+
+    private final Storage client = new GcsFakeStorage(Duration.ZERO, 0).client();
+
+    @Test
+    void writesAndDeletesAreCheckpointedOnClose() throws IOException {
+        GcsStorage storage = storage();
+        try {
+            storage.put("main", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream("hello".getBytes()));
+            storage.put("main", "company.team", URI.create("/company/team/b.txt"), new ByteArrayInputStream("hello world".getBytes()));
+            storage.put("main", "company.team", URI.create("/company/team/dir/c.txt"), new ByteArrayInputStream("c".getBytes()));
+            storage.put("main", "company.team", URI.create("/company/team/dir/d.txt"), new ByteArrayInputStream("dd".getBytes()));
+            storage.delete("main", "company.team", URI.create("/company/team/a.txt"));
+            storage.move("main", "company.team", URI.create("/company/team/b.txt"), URI.create("/company/team/e.txt"));
+            storage.deleteByPrefix("main", "company.team", URI.create("/company/team/dir/"));
+        } finally {
+            storage.close();
+        }
+
+        assertThat(checkpoint().get(TEAM), is(new GcsUsage.Usage(11, 1)));
+    }
+
+    @Test
+    void overwritesReplaceTheCountedObject() throws IOException {
+        GcsStorage storage = storage();
+        try {
+            for (int size = 1; size <= 5; size++) {
+                storage.put("main", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream(new byte[size * 100]));
+            }
+        } finally {
+            storage.close();
+        }
+
+        assertThat(checkpoint().get(TEAM), is(new GcsUsage.Usage(500, 1)));
+    }
+
+    @Test
+    void moveCountsTheObjectsInTheNamespaceOfTheTarget() throws IOException {
+        GcsStorage storage = storage();
+        try {
+            storage.put("main", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream("hello".getBytes()));
+            storage.put("main", "company.team", URI.create("/company/team/dir/b.txt"), new ByteArrayInputStream("hello world".getBytes()));
+            storage.put("main", "company.other", URI.create("/company/other/a.txt"), new ByteArrayInputStream("replaced".getBytes()));
+            storage.move("main", "company.team", URI.create("/company/team/a.txt"), URI.create("/company/other/a.txt"));
+            storage.move("main", "company.team", URI.create("/company/team/dir"), URI.create("/company/other/dir"));
+        } finally {
+            storage.close();
+        }
+
+        Map<GcsUsage.Key, GcsUsage.Usage> usages = checkpoint();
+        assertThat(usages.get(TEAM), is(new GcsUsage.Usage(0, 0)));
+        assertThat(usages.get(new GcsUsage.Key("main", "company.other")), is(new GcsUsage.Usage(16, 2)));
+    }
+
+    @Test
+    void tenantsStoredBeforeTheUsageWasCountedAreReconciled() throws Exception {
+        GcsStorage before = GcsStorage.builder()
+            .bucket("bucket")
+            .path("instance-a")
+            .storage(client)
+            .build();
+        before.init();
+        try {
+            before.put("other", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream("hello".getBytes()));
+        } finally {
+            before.close();
+        }
+
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .path("instance-a")
+            .storage(client)
+            .usageAccounting(true)
+            .usageReconciliationInterval(Duration.ofMillis(50))
+            .build();
+        storage.init();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!reconciled("instance-a/").containsKey("other") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            storage.close();
+        }
+
+        assertThat(reconciled("instance-a/").containsKey("other"), is(true));
+        assertThat(
+            GcsUsage.deserialize(client.readAllBytes(BlobId.of("bucket", "instance-a/.kestra-usage")), 0).usages().get(new GcsUsage.Key("other", null)),
+            is(new GcsUsage.Usage(5, 1))
+        );
+    }
+
+    @Test
+    void checkpointIsMergedByEachNode() throws IOException {
+        for (int node = 0; node < 2; node++) {
+            GcsStorage storage = storage();
+            try {
+                storage.put("main", "company.team", URI.create("/company/team/" + node + ".txt"), new ByteArrayInputStream("hello".getBytes()));
+            } finally {
+                storage.close();
+            }
+        }
+
+        assertThat(checkpoint().get(TEAM), is(new GcsUsage.Usage(10, 2)));
+    }
+
+    @Test
+    void reconciliationIsLeasedAndRecorded() throws Exception {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(client)
+            .usageAccounting(true)
+            .usageReconciliationInterval(Duration.ofMillis(50))
+            .build();
+        storage.init();
+        try {
+            storage.put("main", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream("hello".getBytes()));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!reconciled().containsKey("main") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(reconciled().containsKey("main"), is(true));
+
+            String[] lease = new String(client.readAllBytes(BlobId.of("bucket", ".kestra-usage-reconciliation"))).split("\t");
+            assertThat(lease.length, is(2));
+            assertThat(Long.parseLong(lease[1]), greaterThan(System.currentTimeMillis() - 1000));
+        } finally {
+            storage.close();
+        }
+
+        assertThat(checkpoint().get(TEAM), is(new GcsUsage.Usage(5, 1)));
+    }
+
+    @Test
+    void disabledByDefault() throws IOException {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(client)
+            .build();
+        storage.init();
+        try {
+            storage.put("main", "company.team", URI.create("/company/team/a.txt"), new ByteArrayInputStream("hello".getBytes()));
+        } finally {
+            storage.close();
+        }
+
+        assertThat(client.get(BlobId.of("bucket", ".kestra-usage")), nullValue());
+    }
+
+    private GcsStorage storage() {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(client)
+            .usageAccounting(true)
+            .build();
+        storage.init();
+        return storage;
+    }
+
+    private Map<String, Long> reconciled() throws IOException {
+        return reconciled("");
+    }
+
+    private Map<String, Long> reconciled(String path) throws IOException {
+        if (client.get(BlobId.of("bucket", path + ".kestra-usage")) == null) {
+            return Map.of();
+        }
+        return GcsUsage.deserialize(client.readAllBytes(BlobId.of("bucket", path + ".kestra-usage")), 0).reconciled();
+    }
+
+    private Map<GcsUsage.Key, GcsUsage.Usage> checkpoint() throws IOException {
+        return GcsUsage.deserialize(client.readAllBytes(BlobId.of("bucket", ".kestra-usage")), 0).usages();
+    }
+}
@@ -0,0 +1,95 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Storage;
+
+import io.kestra.core.storages.FileAttributes;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+class GcsStorageWriteBehindTest {
+    // slow enough for the spooled writes to still be uploading while they are read
+    private final GcsFakeStorage fake = new GcsFakeStorage(Duration.ofMillis(100), 0);
+    private final Storage client = fake.client();
+
+    @TempDir
+    Path spoolDirectory;
+
+    private GcsStorage storage;
+
+    @AfterEach
+    void close() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void spooledWritesAreVisible() throws IOException {
+        storage = storage(4);
+
+        storage.put("main", null, URI.create("/a/file.txt"), new ByteArrayInputStream("hello".getBytes()));
+        storage.put("main", null, URI.create("/a/b/other.txt"), new ByteArrayInputStream("world".getBytes()));
+
+        assertThat(read(URI.create("/a/file.txt")), is("hello"));
+        assertThat(storage.exists("main", null, URI.create("/a/file.txt")), is(true));
+        assertThat(storage.getAttributes("main", null, URI.create("/a/file.txt")).getSize(), is(5L));
+        assertThat(storage.getAttributes("main", null, URI.create("/a/b")).getType(), is(FileAttributes.FileType.Directory));
+        assertThat(
+            storage.list("main", null, URI.create("/a/")).stream().map(FileAttributes::getFileName).toList(),
+            containsInAnyOrder("file.txt", "b")
+        );
+        assertThat(
+            storage.allByPrefix("main", null, URI.create("/a/"), false),
+            containsInAnyOrder(URI.create("kestra:///a/file.txt"), URI.create("kestra:///a/b/other.txt"))
+        );
+    }
+
+    @Test
+    void moveReplacesASpooledTarget() throws IOException {
+        // a single upload thread, the target is uploaded after the source
+        storage = storage(1);
+
+        storage.put("main", null, URI.create("/a/source.txt"), new ByteArrayInputStream("moved".getBytes()));
+        storage.put("main", null, URI.create("/a/target.txt"), new ByteArrayInputStream("replaced".getBytes()));
+        storage.move("main", null, URI.create("/a/source.txt"), URI.create("/a/target.txt"));
+
+        assertThat(read(URI.create("/a/target.txt")), is("moved"));
+        assertThat(storage.exists("main", null, URI.create("/a/source.txt")), is(false));
+
+        storage.close();
+        storage = null;
+        assertThat(new String(client.readAllBytes(BlobId.of("bucket", "main/a/target.txt"))), is("moved"));
+        assertThat(client.get(BlobId.of("bucket", "main/a/source.txt")), is((Object) null));
+    }
+
+    private GcsStorage storage(int threads) {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(client)
+            .writeBehindDirectory(spoolDirectory.toString())
+            .writeBehindThreads(threads)
+            .build();
+        storage.init();
+        return storage;
+    }
+
+    private String read(URI uri) throws IOException {
+        try (InputStream inputStream = storage.get("main", null, uri)) {
+            return new String(inputStream.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsTracerTest {
+    private final List<SpanData> spans = new CopyOnWriteArrayList<>();
+    private SdkTracerProvider tracerProvider;
+    private GcsTracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(new SpanExporter() {
+                @Override
+                public CompletableResultCode export(Collection<SpanData> exported) {
+                    spans.addAll(exported);
+                    return CompletableResultCode.ofSuccess();
+                }
+
+                @Override
+                public CompletableResultCode flush() {
+                    return CompletableResultCode.ofSuccess();
+                }
+
+                @Override
+                public CompletableResultCode shutdown() {
+                    return CompletableResultCode.ofSuccess();
+                }
+            }))
+            .build();
+        tracer = new GcsTracer(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void requestIsChildOfOperation() {
+        String result = tracer.operation("get", GcsTracer.attributes("main", "io.kestra", "bucket"), span ->
+            tracer.request("read", "bucket", request -> {
+                request.setAttribute(GcsTracer.BYTES, 5L);
+                return "hello";
+            })
+        );
+
+        assertThat(result, is("hello"));
+        assertThat(spans.size(), is(2));
+
+        SpanData request = spans.get(0);
+        SpanData operation = spans.get(1);
+        assertThat(request.getName(), is("gcs.read"));
+        assertThat(request.getParentSpanId(), is(operation.getSpanId()));
+        assertThat(request.getAttributes().get(GcsTracer.BYTES), is(5L));
+        assertThat(operation.getName(), is("GcsStorage.get"));
+        assertThat(operation.getAttributes().get(GcsTracer.TENANT), is("main"));
+        assertThat(operation.getAttributes().get(GcsTracer.NAMESPACE), is("io.kestra"));
+        assertThat(operation.getAttributes().get(GcsTracer.BUCKET), is("bucket"));
+    }
+
+    @Test
+    void failureIsRecorded() {
+        assertThrows(IOException.class, () -> tracer.operation("put", GcsTracer.attributes(null, null, "bucket"), span -> {
+            throw new IOException("boom");
+        }));
+
+        assertThat(spans.size(), is(1));
+        assertThat(spans.get(0).getStatus().getStatusCode(), is(StatusCode.ERROR));
+        assertThat(spans.get(0).getEvents().get(0).getName(), is("exception"));
+    }
+
+    @Test
+    void getIsASingleOperation() throws IOException {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .openTelemetry(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build())
+            .storage(new GcsFakeStorage(Duration.ZERO, 0).client())
+            .build();
+        storage.init();
+        try {
+            storage.put("main", null, URI.create("/a/file.txt"), new ByteArrayInputStream("hello".getBytes()));
+            spans.clear();
+
+            try (InputStream inputStream = storage.get("main", null, URI.create("/a/file.txt"))) {
+                assertThat(new String(inputStream.readAllBytes()), is("hello"));
+            }
+
+            List<String> operations = spans.stream()
+                .map(SpanData::getName)
+                .filter(name -> name.startsWith("GcsStorage."))
+                .toList();
+            assertThat(operations, is(List.of("GcsStorage.get")));
+        } finally {
+            storage.close();
+        }
+    }
+}
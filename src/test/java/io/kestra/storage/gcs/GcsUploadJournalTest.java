@@ -0,0 +1,243 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GcsUploadJournalTest {
+    private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final URI URI = java.net.URI.create("/file.bin");
+    private static final BlobId BLOB_ID = BlobId.of("bucket", "main/file.bin");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void saveLoadAndDelete() throws Exception {
+        var journal = new GcsUploadJournal(directory.resolve("journal"));
+        var blobId = BlobId.of("test-bucket", "main/file.bin");
+
+        assertThat(journal.load(blobId).isPresent(), is(false));
+
+        journal.save(blobId, new GcsUploadJournal.Entry(new TestState(), 1024, 1, 2));
+        var entry = journal.load(blobId).orElseThrow();
+        assertThat(entry.offset(), is(1024L));
+        assertThat(entry.headChecksum(), is(1L));
+        assertThat(entry.checksum(), is(2L));
+        assertThat(journal.load(BlobId.of("other-bucket", "main/file.bin")).isPresent(), is(false));
+
+        journal.delete(blobId);
+        assertThat(journal.load(blobId).isPresent(), is(false));
+    }
+
+    @Test
+    void corruptedEntryIsDiscarded() throws Exception {
+        var journal = new GcsUploadJournal(directory);
+        var blobId = BlobId.of("test-bucket", "main/file.bin");
+
+        journal.save(blobId, new GcsUploadJournal.Entry(new TestState(), 1024, 1, 2));
+        try (var files = Files.list(directory)) {
+            Files.writeString(files.findFirst().orElseThrow(), "not a journal entry");
+        }
+
+        assertThat(journal.load(blobId).isPresent(), is(false));
+        try (var files = Files.list(directory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    void interruptedUploadIsResumedFromTheJournaledOffset() throws Exception {
+        var fake = new GcsFakeStorage(Duration.ZERO, 0);
+        var journal = new MemoryJournal(directory);
+        GcsStorage storage = storage(fake, journal);
+        byte[] data = data(CHUNK_SIZE + 4 * 1024 * 1024);
+        try {
+            assertThrows(IOException.class, () -> storage.put("main", null, URI, interrupted(data, CHUNK_SIZE + 1024 * 1024)));
+            assertThat(journal.load(BLOB_ID).orElseThrow().offset(), is((long) CHUNK_SIZE));
+            long sessions = fake.requests("open");
+
+            storage.put("main", null, URI, new ByteArrayInputStream(data));
+
+            assertThat(fake.requests("open"), is(sessions));
+            assertThat(read(storage), is(data));
+            assertThat(journal.load(BLOB_ID).isPresent(), is(false));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void differentHeadStartsOver() throws Exception {
+        var fake = new GcsFakeStorage(Duration.ZERO, 0);
+        var journal = new MemoryJournal(directory);
+        GcsStorage storage = storage(fake, journal);
+        byte[] data = data(CHUNK_SIZE + 4 * 1024 * 1024);
+        try {
+            assertThrows(IOException.class, () -> storage.put("main", null, URI, interrupted(data, CHUNK_SIZE + 1024 * 1024)));
+            long sessions = fake.requests("open");
+
+            byte[] other = data.clone();
+            other[0]++;
+            storage.put("main", null, URI, new ByteArrayInputStream(other));
+
+            assertThat(fake.requests("open"), greaterThan(sessions));
+            assertThat(read(storage), is(other));
+            assertThat(journal.load(BLOB_ID).isPresent(), is(false));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void differentDataAfterTheHeadIsReplayedToANewUpload() throws Exception {
+        var fake = new GcsFakeStorage(Duration.ZERO, 0);
+        var journal = new MemoryJournal(directory);
+        GcsStorage storage = storage(fake, journal);
+        byte[] data = data(CHUNK_SIZE + 4 * 1024 * 1024);
+        try {
+            assertThrows(IOException.class, () -> storage.put("main", null, URI, interrupted(data, CHUNK_SIZE + 1024 * 1024)));
+            long sessions = fake.requests("open");
+
+            // same head, but different data before the journaled offset: the data read is replayed to a new upload
+            byte[] other = data.clone();
+            other[CHUNK_SIZE - 1]++;
+            storage.put("main", null, URI, new ByteArrayInputStream(other));
+
+            assertThat(fake.requests("open"), greaterThan(sessions));
+            assertThat(read(storage), is(other));
+            assertThat(journal.load(BLOB_ID).isPresent(), is(false));
+            // the data spilled is deleted
+            try (var files = Files.list(directory)) {
+                assertThat(files.count(), is(0L));
+            }
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void laterWriteIsNotDeletedOnMismatch() throws Exception {
+        var fake = new GcsFakeStorage(Duration.ZERO, 0);
+        Storage client = fake.client();
+        GcsStorage storage = storage(fake, new MemoryJournal(directory));
+        InputStream data = new FilterInputStream(new ByteArrayInputStream("hello".getBytes())) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read < 0) {
+                    // another writer replaces the object right after the upload
+                    fake.beforeNext("get", () -> client.create(
+                        BlobInfo.newBuilder(BLOB_ID).setCrc32c(GcsCrc32c.of("other".getBytes())).build(),
+                        "other".getBytes()
+                    ));
+                }
+                return read;
+            }
+        };
+        try {
+            assertThrows(IOException.class, () -> storage.put("main", null, URI, data));
+
+            assertThat(new String(client.readAllBytes(BLOB_ID)), is("other"));
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static GcsStorage storage(GcsFakeStorage fake, GcsUploadJournal journal) {
+        GcsStorage storage = GcsStorage.builder()
+            .bucket("bucket")
+            .storage(fake.client())
+            .uploadJournal(journal)
+            .build();
+        storage.init();
+        return storage;
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + i / 251);
+        }
+        return data;
+    }
+
+    /**
+     * @return a stream of the data failing once the given number of bytes was read, like a worker restarting
+     */
+    private static InputStream interrupted(byte[] data, int failAt) {
+        return new FilterInputStream(new ByteArrayInputStream(Arrays.copyOf(data, failAt))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read < 0) {
+                    throw new IOException("Interrupted");
+                }
+                return read;
+            }
+        };
+    }
+
+    private static byte[] read(GcsStorage storage) throws IOException {
+        try (InputStream inputStream = storage.get("main", null, URI)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Keeps the entries in memory, the client of the fake can't be serialized with the captured upload sessions.
+     */
+    private static class MemoryJournal extends GcsUploadJournal {
+        private final Map<BlobId, Entry> entries = new ConcurrentHashMap<>();
+
+        MemoryJournal(Path directory) throws IOException {
+            super(directory);
+        }
+
+        @Override
+        Optional<Entry> load(BlobId blobId) {
+            return Optional.ofNullable(entries.get(blobId));
+        }
+
+        @Override
+        void save(BlobId blobId, Entry entry) {
+            entries.put(blobId, entry);
+        }
+
+        @Override
+        void delete(BlobId blobId) {
+            entries.remove(blobId);
+        }
+    }
+
+    private static class TestState implements RestorableState<WriteChannel>, Serializable {
+        @Override
+        public WriteChannel restore() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package io.kestra.storage.gcs;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import jakarta.annotation.Nullable;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class GcsUsageTest {
+    private static final long MINUTE = 60_000;
+    private static final GcsUsage.Key TEAM = new GcsUsage.Key("main", "company.team");
+    private static final GcsUsage.Key TEAM_DATA = new GcsUsage.Key("main", "company.team.data");
+
+    /**
+     * A checkpoint object with its generation, failing the given number of saves as if another node saved first.
+     */
+    private static class MemoryStore implements GcsUsage.Store {
+        private Map<GcsUsage.Key, GcsUsage.Usage> usages = Map.of();
+        private Map<String, Long> reconciled = Map.of();
+        private long generation;
+        private final AtomicInteger conflicts = new AtomicInteger();
+        @Nullable
+        private String leaseHolder;
+
+        @Override
+        public synchronized GcsUsage.Checkpoint load() {
+            return new GcsUsage.Checkpoint(usages, reconciled, generation);
+        }
+
+        @Override
+        public synchronized boolean save(Map<GcsUsage.Key, GcsUsage.Usage> usages, Map<String, Long> reconciled, long generation) {
+            if (conflicts.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+                this.generation++;
+                return false;
+            }
+            if (generation != this.generation) {
+                return false;
+            }
+            this.usages = Map.copyOf(usages);
+            this.reconciled = Map.copyOf(reconciled);
+            this.generation++;
+            return true;
+        }
+
+        // never expires
+        @Override
+        public synchronized boolean lease(String holder, Duration duration) {
+            if (leaseHolder == null) {
+                leaseHolder = holder;
+            }
+            return leaseHolder.equals(holder);
+        }
+    }
+
+    @Test
+    void checkpointsAddTheChangesOfEachNode() throws IOException {
+        var store = new MemoryStore();
+        var node1 = new GcsUsage(store, (tenantId, object) -> {});
+        var node2 = new GcsUsage(store, (tenantId, object) -> {});
+
+        node1.add("main", "company.team", 100, 1);
+        node1.add("main", "company.team", 50, 1);
+        node2.add("main", "company.team", -100, -1);
+        node2.add("main", null, 10, 1);
+        assertThat(node1.usages().get(TEAM), is(new GcsUsage.Usage(150, 2)));
+
+        node1.checkpoint();
+        node2.checkpoint();
+
+        assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(50, 1)));
+        assertThat(store.usages.get(new GcsUsage.Key("main", null)), is(new GcsUsage.Usage(10, 1)));
+        // the changes checkpointed are not pending anymore
+        node2.checkpoint();
+        assertThat(node2.usages().get(TEAM), is(new GcsUsage.Usage(50, 1)));
+    }
+
+    @Test
+    void checkpointIsRetriedOnConflict() throws IOException {
+        var store = new MemoryStore();
+        var usage = new GcsUsage(store, (tenantId, object) -> {});
+        usage.add("main", "company.team", 100, 1);
+
+        store.conflicts.set(2);
+        usage.checkpoint();
+        assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(100, 1)));
+
+        usage.add("main", "company.team", 100, 1);
+        store.conflicts.set(5);
+        assertThrows(IOException.class, usage::checkpoint);
+        // the changes are kept for the next checkpoint
+        usage.checkpoint();
+        assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(200, 2)));
+    }
+
+    @Test
+    void reconciliationAttributesObjectsToTheLongestNamespace() throws IOException {
+        var store = new MemoryStore();
+        Map<String, Long> objects = Map.of(
+            "company/team/flow/file.txt", 10L,
+            "company/team/data/file.txt", 20L,
+            "company/team/data/other.txt", 30L,
+            "other/file.txt", 40L
+        );
+        var usage = new GcsUsage(store, (tenantId, object) -> objects.forEach(object::accept));
+        usage.add("main", "company.team", 1000, 10);
+        usage.add("main", "company.team.data", 1000, 10);
+        usage.add("other", "company.team", 5, 1);
+
+        usage.reconcile("main");
+
+        Map<GcsUsage.Key, GcsUsage.Usage> usages = usage.usages();
+        assertThat(usages.get(TEAM), is(new GcsUsage.Usage(10, 1)));
+        assertThat(usages.get(TEAM_DATA), is(new GcsUsage.Usage(50, 2)));
+        assertThat(usages.get(new GcsUsage.Key("main", null)), is(new GcsUsage.Usage(40, 1)));
+        // the other tenants are left to the next checkpoint
+        assertThat(usages.get(new GcsUsage.Key("other", "company.team")), is(new GcsUsage.Usage(5, 1)));
+        assertThat(store.usages.containsKey(new GcsUsage.Key("other", "company.team")), is(false));
+    }
+
+    @Test
+    void changesListedByAnotherNodeAreNotCountedTwice() throws IOException {
+        var store = new MemoryStore();
+        var clock = new AtomicLong();
+        Map<String, Long> objects = new HashMap<>(Map.of("company/team/a.txt", 100L));
+        var node1 = new GcsUsage(store, Set::of, (tenantId, object) -> objects.forEach(object::accept), clock::get);
+        var node2 = new GcsUsage(store, Set::of, (tenantId, object) -> objects.forEach(object::accept), clock::get);
+
+        // written by the second node, not checkpointed before the reconciliation of the first one
+        node2.add("main", "company.team", 100, 1);
+        // a namespace known to the first node
+        node1.add("main", "company.team", 0, 0);
+        clock.set(MINUTE);
+        node1.reconcile("main");
+
+        // then written after the listing
+        clock.set(2 * MINUTE);
+        objects.put("company/team/b.txt", 10L);
+        node2.add("main", "company.team", 10, 1);
+        node2.checkpoint();
+
+        assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(110, 2)));
+        assertThat(node2.usages().get(TEAM), is(new GcsUsage.Usage(110, 2)));
+    }
+
+    @Test
+    void tenantsStoredBeforeTheUsageWasCountedAreReconciled() {
+        var store = new MemoryStore();
+        var usage = new GcsUsage(store, () -> Set.of("main", "other"), (tenantId, object) -> object.accept("company/team/a.txt", 100), () -> MINUTE);
+        usage.add("main", "company.team", 100, 1);
+
+        assertThat(usage.reconcileAll(Duration.ofHours(1)), is(true));
+
+        assertThat(store.reconciled.keySet(), is(Set.of("main", "other")));
+        assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(100, 1)));
+        // no namespace of the other tenant is known yet
+        assertThat(store.usages.get(new GcsUsage.Key("other", null)), is(new GcsUsage.Usage(100, 1)));
+    }
+
+    @Test
+    void namespaceOfAPathIsTheLongestKnown() {
+        var usage = new GcsUsage(new MemoryStore(), (tenantId, object) -> {});
+        usage.add("main", "company.team", 0, 0);
+        usage.add("main", "company.team.data", 0, 0);
+
+        assertThat(usage.namespace("main", "company/team/data/file.txt"), is("company.team.data"));
+        assertThat(usage.namespace("main", "company/team/file.txt"), is("company.team"));
+        assertThat(usage.namespace("main", "company/teams/file.txt"), is((String) null));
+        assertThat(usage.namespace("other", "company/team/file.txt"), is((String) null));
+    }
+
+    @Test
+    void onlyTheLeaseHolderReconciles() {
+        var store = new MemoryStore();
+        var scans = new AtomicInteger();
+        GcsUsage.Scan scan = (tenantId, object) -> {
+            scans.incrementAndGet();
+            object.accept("company/team/a.txt", 100);
+        };
+        var node1 = new GcsUsage(store, scan);
+        var node2 = new GcsUsage(store, scan);
+        node1.add("main", "company.team", 100, 1);
+        node2.add("main", "company.team", 100, 1);
+
+        assertThat(node1.reconcileAll(Duration.ofHours(1)), is(true));
+        assertThat(node2.reconcileAll(Duration.ofHours(1)), is(false));
+        assertThat(node1.reconcileAll(Duration.ofHours(1)), is(true));
+        assertThat(scans.get(), is(2));
+    }
+
+    @Test
+    void checkpointIsNotBlockedByAScan() throws Exception {
+        var store = new MemoryStore();
+        var scanning = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var usage = new GcsUsage(store, (tenantId, object) -> {
+            scanning.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        });
+        usage.add("main", "company.team", 100, 1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reconciliation = executor.submit(() -> {
+                usage.reconcile("main");
+                return null;
+            });
+            assertThat(scanning.await(5, TimeUnit.SECONDS), is(true));
+
+            // written after the listing started
+            usage.add("main", "company.team", 50, 1);
+            assertTimeoutPreemptively(Duration.ofSeconds(2), usage::checkpoint);
+            assertThat(store.usages.get(TEAM), is(new GcsUsage.Usage(50, 1)));
+
+            release.countDown();
+            reconciliation.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void serialization() throws IOException {
+        Map<GcsUsage.Key, GcsUsage.Usage> usages = new HashMap<>();
+        usages.put(TEAM, new GcsUsage.Usage(100, 1));
+        usages.put(new GcsUsage.Key("main", null), new GcsUsage.Usage(0, 0));
+        Map<String, Long> reconciled = Map.of("main", 1700000000000L);
+
+        GcsUsage.Checkpoint checkpoint = GcsUsage.deserialize(GcsUsage.serialize(usages, reconciled), 3);
+        assertThat(checkpoint, is(new GcsUsage.Checkpoint(usages, reconciled, 3)));
+        assertThat(GcsUsage.deserialize(new byte[0], 0), is(new GcsUsage.Checkpoint(Map.of(), Map.of(), 0)));
+        for (String invalid : List.of("main\tcompany.team\t100\n", "main\tcompany.team\tmany\t1\n", "main\tyesterday\n")) {
+            assertThrows(IOException.class, () -> GcsUsage.deserialize(invalid.getBytes(), 0));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.kestra.storage.gcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+
+class GcsWriteBehindSpoolTest {
+    @TempDir
+    Path directory;
+
+    private final Map<String, String> uploaded = new ConcurrentHashMap<>();
+
+    @Test
+    void spooledWriteIsUploaded() throws Exception {
+        try (var spool = new GcsWriteBehindSpool(directory, 2, this::upload)) {
+            var entry = spool.spool("bucket", "main/file.txt", "main/file.txt", "main", Map.of("key", "value"), data("hello"));
+
+            assertThat(entry.size(), is(5L));
+            assertThat(entry.metadata(), is(Map.of("key", "value")));
+
+            spool.flush("bucket", "main/", Duration.ofSeconds(5));
+
+            assertThat(uploaded.get("main/file.txt"), is("hello"));
+            assertThat(spool.pending("bucket", "main/file.txt").isPresent(), is(false));
+            assertThat(directory.toFile().list(), emptyArray());
+        }
+    }
+
+    @Test
+    void pendingWriteIsReadable() throws Exception {
+        var release = new CountDownLatch(1);
+        try (var spool = new GcsWriteBehindSpool(directory, 1, (entry, data) -> {
+            await(release);
+            upload(entry, data);
+        })) {
+            spool.spool("bucket", "main/a/file.txt", "main/a/file.txt", "main", null, data("hello"));
+
+            var entry = spool.pending("bucket", "main/a/file.txt").orElseThrow();
+            try (var inputStream = spool.open(entry)) {
+                assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), is("hello"));
+            }
+            assertThat(spool.pendingUnder("bucket", "main/a/").size(), is(1));
+            assertThat(spool.pendingUnder("bucket", "main/b/").size(), is(0));
+            assertThat(spool.pendingUnder("other", "main/a/").size(), is(0));
+
+            release.countDown();
+            spool.flush("bucket", "main/", Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void onlyLatestWriteIsUploaded() throws Exception {
+        var release = new CountDownLatch(1);
+        var uploads = new AtomicInteger();
+        try (var spool = new GcsWriteBehindSpool(directory, 2, (entry, data) -> {
+            await(release);
+            uploads.incrementAndGet();
+            upload(entry, data);
+        })) {
+            spool.spool("bucket", "file.txt", "file.txt", null, null, data("first"));
+            spool.spool("bucket", "file.txt", "file.txt", null, null, data("second"));
+            spool.spool("bucket", "file.txt", "file.txt", null, null, data("third"));
+
+            release.countDown();
+            spool.flush("bucket", "", Duration.ofSeconds(5));
+
+            assertThat(uploaded.get("file.txt"), is("third"));
+            assertThat(uploads.get() <= 2, is(true));
+        }
+    }
+
+    @Test
+    void failedUploadIsRetried() throws Exception {
+        var attempts = new AtomicInteger();
+        try (var spool = new GcsWriteBehindSpool(directory, 1, (entry, data) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("unavailable");
+            }
+            upload(entry, data);
+        })) {
+            spool.spool("bucket", "file.txt", "file.txt", null, null, data("hello"));
+            spool.flush("bucket", "", Duration.ofSeconds(10));
+
+            assertThat(attempts.get(), is(2));
+            assertThat(uploaded.get("file.txt"), is("hello"));
+        }
+    }
+
+    @Test
+    void spoolIsReplayedOnRestart() throws Exception {
+        // the uploads of the first process never complete
+        var started = new CountDownLatch(2);
+        var killed = new CountDownLatch(1);
+        var spool = new GcsWriteBehindSpool(directory, 2, (entry, data) -> {
+            started.countDown();
+            await(killed);
+        });
+        spool.spool("bucket", "a.txt", "a.txt", "main", null, data("a"));
+        spool.spool("bucket", "b.txt", "b.txt", "main", null, data("b"));
+        // a write that never completed
+        Files.writeString(directory.resolve("orphan.data"), "lost");
+        started.await(5, TimeUnit.SECONDS);
+
+        try (var restarted = new GcsWriteBehindSpool(directory, 2, this::upload)) {
+            assertThat(restarted.replay(), is(2));
+            restarted.flush("bucket", "", Duration.ofSeconds(5));
+
+            assertThat(uploaded, is(Map.of("a.txt", "a", "b.txt", "b")));
+            assertThat(directory.toFile().list(), emptyArray());
+        } finally {
+            killed.countDown();
+            spool.close();
+        }
+    }
+
+    @Test
+    void retryDelayIsBounded() {
+        assertThat(GcsWriteBehindSpool.retryDelay(0), is(Duration.ofSeconds(1)));
+        assertThat(GcsWriteBehindSpool.retryDelay(3), is(Duration.ofSeconds(8)));
+        assertThat(GcsWriteBehindSpool.retryDelay(100), is(Duration.ofMinutes(5)));
+    }
+
+    private void upload(GcsWriteBehindSpool.Entry entry, InputStream data) throws IOException {
+        uploaded.put(entry.name(), new String(data.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    private static ByteArrayInputStream data(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.kestra.storage.gcs;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class GcsWriteRampTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void writesAreSpacedByTheInitialRate() {
+        var ramp = new GcsWriteRamp(10, Duration.ofMinutes(20));
+        long now = System.nanoTime();
+
+        assertThat(ramp.reserve(1, now), is(0L));
+        assertThat(ramp.reserve(1, now), is(SECOND / 10));
+        assertThat(ramp.reserve(5, now), is(2 * SECOND / 10));
+        assertThat(ramp.reserve(1, now), is(7 * SECOND / 10));
+    }
+
+    @Test
+    void rateDoublesEveryIntervalWhileBusy() {
+        var ramp = new GcsWriteRamp(100, Duration.ofSeconds(10));
+        long now = System.nanoTime();
+
+        assertThat(ramp.rate(now), is(100.0));
+        // keep writing so the ramp does not reset
+        for (int i = 1; i <= 25; i++) {
+            ramp.reserve(1, now + i * SECOND);
+        }
+        assertThat(ramp.rate(now + 25 * SECOND), is(400.0));
+    }
+
+    @Test
+    void rampStartsOverAfterAnIdleInterval() {
+        var ramp = new GcsWriteRamp(100, Duration.ofSeconds(10));
+        long now = System.nanoTime();
+
+        for (int i = 1; i <= 25; i++) {
+            ramp.reserve(1, now + i * SECOND);
+        }
+        ramp.reserve(1, now + 60 * SECOND);
+
+        assertThat(ramp.rate(now + 60 * SECOND), is(100.0));
+    }
+}